@@ -2,10 +2,13 @@ package ru.danilgordienko.film_fetcher.config;
 
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -23,6 +26,14 @@ public class RabbitConfig {
     public static final String ROUTING_KEY_PAGE = "movies.page.key";
     public static final String ROUTING_KEY_GENRE = "movies.genre.key";
 
+    // заголовки бинарного ответа с постером (тело application/octet-stream, без JSON)
+    public static final String POSTER_SIZE_HEADER = "x-poster-size";
+    public static final String POSTER_CONTENT_TYPE_HEADER = "x-poster-content-type";
+    // ответ с этим заголовком — ошибка загрузки из TMDB (5xx, 429, таймаут), а не отсутствие постера
+    public static final String POSTER_ERROR_HEADER = "x-poster-error";
+
+    public static final String TMDB_LISTENER_FACTORY = "tmdbListenerContainerFactory";
+
     @Bean
     public Queue queue() {
         return new Queue(QUEUE, false);
@@ -80,5 +91,26 @@ public class RabbitConfig {
         return template;
     }
 
+    // Слушатели, которые ходят в TMDB. Обработчик возвращает Mono и не занимает поток на время запроса,
+    // сообщение подтверждается после ответа (MANUAL). Поэтому запросов в работе не больше
+    // consumers * prefetch, и это число не зависит от количества потоков слушателя
+    @Bean(TMDB_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory tmdbListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${app.rabbit.tmdb.consumers:2}") int consumers,
+            @Value("${app.rabbit.tmdb.prefetch:250}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConcurrentConsumers(consumers);
+        factory.setMaxConcurrentConsumers(consumers);
+        factory.setPrefetchCount(prefetch);
+        // упавший запрос не возвращается в очередь бесконечно, film_storage получит таймаут
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
 }
 
@@ -6,8 +6,11 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import reactor.netty.transport.ProxyProvider;
 
+import java.time.Duration;
+
 
 @Configuration
 public class WebClientConfig {
@@ -23,9 +26,28 @@ public class WebClientConfig {
 
     @Value("${proxy.password:}")
     private String proxyPassword;
+
+    // пул соединений к TMDB рассчитан на сотни одновременных запросов от неблокирующих слушателей
+    @Value("${app.tmdb.http.max-connections:500}")
+    private int maxConnections;
+
+    @Value("${app.tmdb.http.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${app.tmdb.http.response-timeout:10s}")
+    private Duration responseTimeout;
+
     @Bean
     public WebClient webClient() {
-        HttpClient httpClient = HttpClient.create()
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("tmdb")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(responseTimeout)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .responseTimeout(responseTimeout)
                 .proxy(proxy -> {
                     ProxyProvider.Builder proxyBuilder = proxy
                             .type(ProxyProvider.Proxy.HTTP)
@@ -2,10 +2,13 @@ package ru.danilgordienko.film_fetcher.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
+import ru.danilgordienko.film_fetcher.exception.TmdbRateLimitedException;
 import ru.danilgordienko.film_fetcher.model.dto.request.Genre;
 import ru.danilgordienko.film_fetcher.model.dto.response.MovieDto;
 import ru.danilgordienko.film_fetcher.service.MovieApiService;
@@ -49,10 +52,19 @@ public class TmdbApiController {
         return response;
     }
 
+    // TMDB ограничивает запросы дольше, чем TmdbWebClient готов ждать
+    @ExceptionHandler(TmdbRateLimitedException.class)
+    public ResponseEntity<String> handleRateLimited(TmdbRateLimitedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(e.getMessage());
+    }
+
     @GetMapping(value = "/posters/{posterPath}", produces = MediaType.IMAGE_JPEG_VALUE)
-    public Mono<ResponseEntity<byte[]>> downloadPoster(@PathVariable String posterPath) {
+    public Mono<ResponseEntity<byte[]>> downloadPoster(@PathVariable String posterPath,
+                                                       @RequestParam(defaultValue = "w500") String size) {
         log.info("GET /posters/{}, request received to fetch poster", posterPath);
-        return tmdbApiService.downloadPoster(posterPath)
+        return tmdbApiService.downloadPoster(posterPath, size)
                 .map(bytes -> {
                     if (bytes.length > 0) {
                         log.info("Poster {} fetched successfully", posterPath);
@@ -61,7 +73,11 @@ public class TmdbApiController {
                                 .body(bytes);
                     }
                     log.warn("Poster {} not found", posterPath);
-                    return ResponseEntity.notFound().build();
+                    return ResponseEntity.<byte[]>notFound().build();
+                })
+                .onErrorResume(e -> {
+                    log.error("Failed to fetch poster {}: {}", posterPath, e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.BAD_GATEWAY).build());
                 });
     }
 }
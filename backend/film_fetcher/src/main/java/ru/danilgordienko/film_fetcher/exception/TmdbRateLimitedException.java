@@ -0,0 +1,17 @@
+package ru.danilgordienko.film_fetcher.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+// TMDB ответил 429, retryAfter — сколько ждать перед повтором
+@Getter
+public class TmdbRateLimitedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TmdbRateLimitedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
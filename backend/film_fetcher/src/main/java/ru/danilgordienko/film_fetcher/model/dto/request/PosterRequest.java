@@ -0,0 +1,14 @@
+package ru.danilgordienko.film_fetcher.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// запрос постера от film_storage: путь в TMDB и размер (w92, w185, w500)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PosterRequest {
+    private String posterPath;
+    private String size;
+}
@@ -12,6 +12,10 @@ import java.util.List;
 @NoArgsConstructor
 public class TmdbMovieResponse {
 
+    // id фильма в TMDB, по нему film_storage обновляет уже сохранённые фильмы
+    @JsonProperty("id")
+    private Long tmdbId;
+
     private String title;
 
     @JsonProperty("overview")
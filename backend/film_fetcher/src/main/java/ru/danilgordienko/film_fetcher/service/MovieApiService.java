@@ -8,7 +8,7 @@ import java.util.List;
 
 public interface MovieApiService {
 
-    Mono<byte[]> downloadPoster(String posterPath);
+    Mono<byte[]> downloadPoster(String posterPath, String size);
     Mono<List<MovieDto>> getRecentlyReleasedMovies(int days);
     Mono<List<MovieDto>> getPopularMovies(int page);
     List<Genre> getGenres();
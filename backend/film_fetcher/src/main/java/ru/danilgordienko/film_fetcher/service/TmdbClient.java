@@ -0,0 +1,12 @@
+package ru.danilgordienko.film_fetcher.service;
+
+import reactor.core.publisher.Mono;
+
+public interface TmdbClient {
+
+    // запрос к api.themoviedb.org: проходит через ограничитель частоты
+    <T> Mono<T> getJson(String url, Class<T> type);
+
+    // картинка с image.tmdb.org: CDN, квота API на неё не распространяется
+    Mono<byte[]> getImage(String url);
+}
@@ -5,26 +5,37 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 import ru.danilgordienko.film_fetcher.config.RabbitConfig;
 import ru.danilgordienko.film_fetcher.model.dto.response.MovieDto;
 import ru.danilgordienko.film_fetcher.model.dto.response.TmdbResponse;
 import ru.danilgordienko.film_fetcher.model.dto.request.Genre;
+import ru.danilgordienko.film_fetcher.model.dto.request.PosterRequest;
 import ru.danilgordienko.film_fetcher.model.enums.RetryableTaskType;
 import ru.danilgordienko.film_fetcher.service.MovieApiService;
 import ru.danilgordienko.film_fetcher.service.RetryableTaskService;
+import ru.danilgordienko.film_fetcher.service.TmdbClient;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -35,8 +46,9 @@ public class TmdbApiService implements MovieApiService {
 
     @Value("${app.key}")
     private String API_KEY;
-    private final WebClient webClient;
-    private Map<Long, Genre> genres = new HashMap<>();
+    private final TmdbClient tmdbClient;
+    // жанры TMDB по id; карта не изменяется, после загрузки подменяется целиком
+    private final AtomicReference<Map<Long, Genre>> genres = new AtomicReference<>(Map.of());
 
     private String getGenreUrl() {
         return "https://api.themoviedb.org/3/genre/movie/list?api_key=" + API_KEY + "&language=ru-RU";
@@ -47,8 +59,12 @@ public class TmdbApiService implements MovieApiService {
                 "&language=ru-RU&page=" + page;
     }
 
-    private String getImageUrl() {
-        return "https://image.tmdb.org/t/p/w500/";
+    // размеры постеров, которые отдаёт TMDB и которые запрашивает film_storage
+    private static final Set<String> POSTER_SIZES = Set.of("w92", "w185", "w500");
+    private static final String DEFAULT_POSTER_SIZE = "w500";
+
+    private String getImageUrl(String size) {
+        return "https://image.tmdb.org/t/p/" + size + "/";
     }
 
     private String getRecentMovieUrl() {
@@ -64,7 +80,9 @@ public class TmdbApiService implements MovieApiService {
 
     @PostConstruct
     public void init() {
-        loadGenres();
+        loadGenres()
+                .retryWhen(Retry.backoff(5, Duration.ofSeconds(10)))
+                .subscribe(loaded -> { }, e -> log.error("Failed to load TMDB genres, will retry on next request", e));
     }
 
 
@@ -72,71 +90,83 @@ public class TmdbApiService implements MovieApiService {
     //@Scheduled(cron = "0 * * * * *")
     public void populateMovies(){
         getRecentlyReleasedMovies(7)
+                // TMDB недоступен или ограничивает запросы дольше max-retries: пробуем ещё раз позже
+                .retryWhen(Retry.backoff(3, Duration.ofMinutes(1)))
                 .doOnNext(movies -> {
                     retryableTaskService.createRetryableTask(movies, RetryableTaskType.SEND_MOVIE_REQUEST);
                     log.debug("Task for sending {} movies received", movies.size());
                 })
-                .subscribe();
+                .subscribe(movies -> { }, e -> log.error("Failed to fetch recently released movies", e));
+    }
+
+    // Слушатели не блокируют поток: ответ отправляется и сообщение подтверждается, когда завершится Mono.
+    // Постер отправляется готовым сообщением, поэтому конвертер JSON не кодирует его в base64
+    @RabbitListener(queues = RabbitConfig.POSTER_QUEUE, containerFactory = RabbitConfig.TMDB_LISTENER_FACTORY)
+    public Mono<Message> handlePosterRequest(PosterRequest request) {
+        return downloadPoster(request.getPosterPath(), request.getSize())
+                .defaultIfEmpty(new byte[0])
+                .map(this::posterReply)
+                .onErrorResume(e -> Mono.just(posterErrorReply(e)));
     }
 
-    @RabbitListener(queues = RabbitConfig.POSTER_QUEUE)
-    public byte[] handlePosterRequest(String posterPath) {
-        return downloadPoster(posterPath).block();
+    // пустое тело означает, что постера нет
+    private Message posterReply(byte[] poster) {
+        return MessageBuilder.withBody(poster)
+                .setContentType(MessageProperties.CONTENT_TYPE_BYTES)
+                .setContentLength(poster.length)
+                .setHeader(RabbitConfig.POSTER_SIZE_HEADER, poster.length)
+                .setHeader(RabbitConfig.POSTER_CONTENT_TYPE_HEADER, MediaType.IMAGE_JPEG_VALUE)
+                .build();
     }
 
-    @RabbitListener(queues = RabbitConfig.MOVIES_PAGE_QUEUE)
-    public List<MovieDto> handleMoviesRequest(int page) {
-        var res = getPopularMovies(page).block();
-        return res;
+    // ошибку нельзя отправить пустым телом: film_storage запомнил бы, что постера нет
+    private Message posterErrorReply(Throwable e) {
+        return MessageBuilder.withBody(new byte[0])
+                .setContentType(MessageProperties.CONTENT_TYPE_BYTES)
+                .setHeader(RabbitConfig.POSTER_ERROR_HEADER, String.valueOf(e.getMessage()))
+                .build();
+    }
+
+    @RabbitListener(queues = RabbitConfig.MOVIES_PAGE_QUEUE, containerFactory = RabbitConfig.TMDB_LISTENER_FACTORY)
+    public Mono<List<MovieDto>> handleMoviesRequest(int page) {
+        return getPopularMovies(page);
     }
 
     public List<Genre> getGenres(){
         log.debug("Attempting to fetch genres");
-        //loadGenres();
-        return genres.values().stream().toList();
+        return List.copyOf(genres.get().values());
     }
 
     @Override
     public Mono<List<MovieDto>> getPopularMovies(int page) {
         log.debug("Attempting to fetch popular movies via TMDB API");
-        //loadGenres();
-        return webClient.get()
-                .uri(getMovieUrl(page))
-                .retrieve()
-                .bodyToMono(TmdbResponse.class)
-                .map(r -> {
-                    var results = r.getResults();
-                    results.forEach(rm -> {
-                        var gs = rm.getGenreIds().stream().map(gm -> genres.get(gm)).toList();
-                        rm.setGenres(gs);
-                    });
-                    return results;
-                })
-                .onErrorResume(e -> {
-                    log.error("TMDb API connection error", e);
-                    return Mono.just(List.of());
-                });
+        return genres()
+                .flatMap(byId -> tmdbClient.getJson(getMovieUrl(page), TmdbResponse.class)
+                        .map(r -> withGenres(r.getResults(), byId)))
+                // пустой список выглядел бы как конец каталога; ошибка уходит вызывающему, он повторит запрос
+                .doOnError(e -> log.error("TMDb API connection error", e));
     }
 
     @Override
-    public Mono<byte[]> downloadPoster(String posterPath) {
+    public Mono<byte[]> downloadPoster(String posterPath, String size) {
         log.debug("Attempting to fetch poster via TMDB API");
         if (posterPath == null || posterPath.isBlank()) {
             return Mono.just(new byte[0]);
         }
+        if (size == null || !POSTER_SIZES.contains(size)) {
+            size = DEFAULT_POSTER_SIZE;
+        }
 
-        String imageUrl = getImageUrl() + posterPath;
+        String imageUrl = getImageUrl(size) + posterPath;
         log.debug("Attempting to fetch poster from: {}", imageUrl);
-        return webClient.get()
-                .uri(imageUrl)
-                .accept(MediaType.IMAGE_JPEG)
-                .retrieve()
-                .bodyToMono(byte[].class)
+        // пустой ответ только при 404 от TMDB; 5xx, 429 и таймауты возвращаются ошибкой
+        return tmdbClient.getImage(imageUrl)
                 .doOnNext(bytes -> log.debug("Poster received, {} bytes", bytes.length))
-                .onErrorResume(e -> {
-                    log.warn("Error downloading poster from {}: {}", imageUrl, e.getMessage());
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.debug("TMDB has no poster at {}", imageUrl);
                     return Mono.just(new byte[0]);
-                });
+                })
+                .doOnError(e -> log.warn("Error downloading poster from {}: {}", imageUrl, e.getMessage()));
     }
 
     @Getter
@@ -145,36 +175,40 @@ public class TmdbApiService implements MovieApiService {
         private List<Genre> genres;
     }
 
-    public void loadGenres() {
-        webClient.get()
-                .uri(getGenreUrl())
-                .retrieve()
-                .bodyToMono(GenreResponse.class)
-                .map(genreResponse -> {
-                    if (genreResponse.getGenres() != null) {
-                        return genreResponse.getGenres().stream()
-                                .map(genre -> {
-                                    Genre g = new Genre();
-                                    g.setName(genre.getName());
-                                    g.setTmdbId(genre.getTmdbId());
-                                    genres.put(genre.getTmdbId(), genre);
-                                    return g;
-                                })
-                                .toList();
-                    }
-                    return List.<Genre>of();
-                })
-                .onErrorResume(e -> {
-                    log.error("TMDb API connection error", e);
-                    return Mono.just(List.of());
+    public Mono<Map<Long, Genre>> loadGenres() {
+        return tmdbClient.getJson(getGenreUrl(), GenreResponse.class)
+                .map(genreResponse -> genreResponse.getGenres() == null
+                        ? Map.<Long, Genre>of()
+                        : genreResponse.getGenres().stream()
+                                .filter(genre -> genre.getTmdbId() != null)
+                                .collect(Collectors.toUnmodifiableMap(Genre::getTmdbId, Function.identity(),
+                                        (first, second) -> first)))
+                .doOnNext(loaded -> {
+                    genres.set(loaded);
+                    log.info("Loaded {} TMDB genres", loaded.size());
                 })
-                .subscribe();
+                .doOnError(e -> log.error("TMDb API connection error", e));
+    }
+
+    // если при старте TMDB был недоступен, жанры загружаются перед запросом фильмов:
+    // без них фильмы сохранились бы без жанров
+    private Mono<Map<Long, Genre>> genres() {
+        Map<Long, Genre> current = genres.get();
+        return current.isEmpty() ? loadGenres() : Mono.just(current);
+    }
+
+    // id жанров, которых нет в справочнике TMDB, пропускаются
+    private static List<MovieDto> withGenres(List<MovieDto> movies, Map<Long, Genre> byId) {
+        movies.forEach(movie -> movie.setGenres(movie.getGenreIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList()));
+        return movies;
     }
 
     @Override
     public Mono<List<MovieDto>> getRecentlyReleasedMovies(int days) {
         log.debug("Attempting to fetch recently released movies via TMDB API");
-        //loadGenres();
 
         LocalDate today = LocalDate.now();
         LocalDate startDate = today.minusDays(days);
@@ -186,23 +220,10 @@ public class TmdbApiService implements MovieApiService {
                 formatter.format(today)
         );
 
-        return webClient.get()
-                .uri(url)
-                .retrieve()
-                .bodyToMono(TmdbResponse.class)
-                .map(r -> {
-                    var results = r.getResults();
-                    results.forEach(rm -> {
-                        var gs = rm.getGenreIds().stream()
-                                .map(genres::get)
-                                .toList();
-                        rm.setGenres(gs);
-                    });
-                    return results;
-                })
-                .onErrorResume(e -> {
-                    log.error("TMDb API connection error", e);
-                    return Mono.just(List.of());
-                });
+        return genres()
+                .flatMap(byId -> tmdbClient.getJson(url, TmdbResponse.class)
+                        .map(r -> withGenres(r.getResults(), byId)))
+                // пустой список выглядел бы как конец каталога; ошибка уходит вызывающему, он повторит запрос
+                .doOnError(e -> log.error("TMDb API connection error", e));
     }
 }
@@ -0,0 +1,58 @@
+package ru.danilgordienko.film_fetcher.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket перед запросами к TMDB API.
+ * Токены пополняются со скоростью requests-per-second, в запасе не больше burst.
+ * Если токенов нет, запрос резервирует следующий свободный и ждёт его без блокировки потока,
+ * поэтому всплеск растягивается во времени, а не превращается в ответы 429.
+ */
+@Component
+public class TmdbRateLimiter {
+
+    private final long nanosPerToken;
+    private final double burst;
+    private final Counter throttled;
+
+    // может быть отрицательным: столько запросов уже ждут своего токена
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TmdbRateLimiter(@Value("${app.tmdb.rate-limit.requests-per-second:40}") double requestsPerSecond,
+                           @Value("${app.tmdb.rate-limit.burst:20}") int burst,
+                           MeterRegistry meterRegistry) {
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+        this.throttled = meterRegistry.counter("tmdb.requests.throttled");
+    }
+
+    // завершается, когда запрос можно отправить
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            long waitNanos = reserve();
+            if (waitNanos == 0) {
+                return Mono.empty();
+            }
+            throttled.increment();
+            return Mono.delay(Duration.ofNanos(waitNanos)).then();
+        });
+    }
+
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (double) (now - lastRefillNanos) / nanosPerToken);
+        lastRefillNanos = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) (-tokens * nanosPerToken);
+    }
+}
@@ -0,0 +1,212 @@
+package ru.danilgordienko.film_fetcher.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import ru.danilgordienko.film_fetcher.exception.TmdbRateLimitedException;
+import ru.danilgordienko.film_fetcher.service.TmdbClient;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Все запросы к TMDB идут через этот клиент.
+ * - запросы к API ограничены TmdbRateLimiter, ответ 429 повторяется после Retry-After;
+ * - одновременные запросы одного URL объединяются в один;
+ * - ответы кэшируются по Cache-Control, устаревшая запись с ETag проверяется через If-None-Match.
+ */
+@Service
+@Slf4j
+public class TmdbWebClient implements TmdbClient {
+
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final WebClient webClient;
+    private final TmdbRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final int maxRetries;
+
+    // запросы, которые сейчас выполняются, по URL
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, CachedResponse> responses;
+
+    private final Counter coalescedRequests;
+    private final Counter cacheHits;
+    private final Counter revalidated;
+    private final Counter rateLimited;
+
+    public TmdbWebClient(WebClient webClient,
+                         TmdbRateLimiter rateLimiter,
+                         ObjectMapper objectMapper,
+                         @Value("${app.tmdb.rate-limit.max-retries:3}") int maxRetries,
+                         @Value("${app.tmdb.cache.max-size-mb:64}") long cacheMaxSizeMb,
+                         MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.maxRetries = maxRetries;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxSizeMb * 1024 * 1024)
+                .weigher((String url, CachedResponse response) -> response.body().length)
+                .build();
+        this.coalescedRequests = meterRegistry.counter("tmdb.requests.coalesced");
+        this.cacheHits = meterRegistry.counter("tmdb.cache.hits");
+        this.revalidated = meterRegistry.counter("tmdb.cache.revalidated");
+        this.rateLimited = meterRegistry.counter("tmdb.requests.rate_limited");
+        Gauge.builder("tmdb.requests.in.flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public <T> Mono<T> getJson(String url, Class<T> type) {
+        return get(url, true).flatMap(body -> Mono.fromCallable(() -> objectMapper.readValue(body, type)));
+    }
+
+    @Override
+    public Mono<byte[]> getImage(String url) {
+        return get(url, false);
+    }
+
+    private Mono<byte[]> get(String url, boolean limited) {
+        return Mono.defer(() -> {
+            CachedResponse cached = responses.getIfPresent(url);
+            if (cached != null && cached.isFresh()) {
+                cacheHits.increment();
+                return Mono.just(cached.body());
+            }
+
+            // одновременные запросы одного URL ждут один и тот же ответ
+            CompletableFuture<byte[]> created = new CompletableFuture<>();
+            CompletableFuture<byte[]> existing = inFlight.putIfAbsent(url, created);
+            if (existing != null) {
+                coalescedRequests.increment();
+                return Mono.fromFuture(existing, true);
+            }
+            fetch(url, cached, limited, 0).subscribe(
+                    body -> {
+                        inFlight.remove(url, created);
+                        created.complete(body);
+                    },
+                    e -> {
+                        inFlight.remove(url, created);
+                        created.completeExceptionally(e);
+                    });
+            return Mono.fromFuture(created, true);
+        });
+    }
+
+    private Mono<byte[]> fetch(String url, CachedResponse cached, boolean limited, int attempt) {
+        Mono<Void> permit = limited ? rateLimiter.acquire() : Mono.empty();
+        return permit
+                .then(Mono.defer(() -> webClient.get()
+                        .uri(url)
+                        .headers(headers -> {
+                            if (cached != null && cached.etag() != null) {
+                                headers.setIfNoneMatch(cached.etag());
+                            }
+                        })
+                        .exchangeToMono(response -> handle(url, cached, response))))
+                .onErrorResume(TmdbRateLimitedException.class, e -> {
+                    if (attempt >= maxRetries) {
+                        return Mono.error(e);
+                    }
+                    log.warn("TMDB rate limit exceeded, retrying in {} ms", e.getRetryAfter().toMillis());
+                    return Mono.delay(e.getRetryAfter()).then(fetch(url, cached, limited, attempt + 1));
+                });
+    }
+
+    private Mono<byte[]> handle(String url, CachedResponse cached, ClientResponse response) {
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && cached != null) {
+            revalidated.increment();
+            responses.put(url, cached.withExpiresAt(expiresAt(headers)));
+            return response.releaseBody().thenReturn(cached.body());
+        }
+        if (response.statusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+            rateLimited.increment();
+            return response.releaseBody()
+                    .then(Mono.error(new TmdbRateLimitedException("TMDB rate limit exceeded", retryAfter(headers))));
+        }
+        if (response.statusCode().isError()) {
+            return response.createException().flatMap(Mono::error);
+        }
+        return response.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .doOnNext(body -> remember(url, headers, body));
+    }
+
+    private void remember(String url, HttpHeaders headers, byte[] body) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-store")) {
+            return;
+        }
+        String etag = headers.getETag();
+        long expiresAt = expiresAt(headers);
+        // без ETag и срока свежести ответ нельзя переиспользовать
+        if (etag == null && expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        responses.put(url, new CachedResponse(body, etag, expiresAt));
+    }
+
+    // max-age из Cache-Control; no-cache и отсутствие заголовка — проверять при каждом запросе
+    private static long expiresAt(HttpHeaders headers) {
+        long now = System.currentTimeMillis();
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return now;
+        }
+        long maxAgeSeconds = 0;
+        for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-cache")) {
+                return now;
+            }
+            if (directive.startsWith("max-age=")) {
+                try {
+                    maxAgeSeconds = Long.parseLong(directive.substring("max-age=".length()));
+                } catch (NumberFormatException e) {
+                    return now;
+                }
+            }
+        }
+        return now + maxAgeSeconds * 1000;
+    }
+
+    private static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return DEFAULT_RETRY_AFTER;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(1, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            return DEFAULT_RETRY_AFTER;
+        }
+    }
+
+    private record CachedResponse(byte[] body, String etag, long expiresAtMillis) {
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < expiresAtMillis;
+        }
+
+        CachedResponse withExpiresAt(long expiresAtMillis) {
+            return new CachedResponse(body, etag, expiresAtMillis);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ru.danilgordienko.film_fetcher.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Пропускная способность слушателей постеров film_fetcher на локальной заглушке TMDB.
+ * Заглушка — HttpServer из JDK, отвечает постером 64 КБ через STUB_LATENCY_MS.
+ * Измеряется время, за которое обрабатываются все requests сообщений из очереди.
+ *
+ * blockingListeners повторяет старые слушатели с .block(): каждый из LISTENER_THREADS потоков
+ * ждёт ответа TMDB, поэтому время растёт как requests / LISTENER_THREADS * задержка.
+ * reactiveListeners повторяет слушатели, возвращающие Mono, с ручным подтверждением:
+ * в работе до consumers * prefetch (IN_FLIGHT) запросов независимо от числа потоков.
+ *
+ * Запуск: mvn test-compile, затем main этого класса с test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TmdbConsumerBenchmark {
+
+    private static final int LISTENER_THREADS = 2;
+    // app.rabbit.tmdb.consumers * app.rabbit.tmdb.prefetch
+    private static final int IN_FLIGHT = 2 * 250;
+    private static final long STUB_LATENCY_MS = 50;
+    private static final byte[] POSTER = new byte[64 * 1024];
+
+    @Param({"100", "500", "2000"})
+    private int requests;
+
+    private HttpServer stub;
+    private ExecutorService stubThreads;
+    private ExecutorService listenerThreads;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+    private String posterUrl;
+
+    @Setup
+    public void setup() throws Exception {
+        stubThreads = Executors.newVirtualThreadPerTaskExecutor();
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        stub.createContext("/t/p/w500/", exchange -> {
+            try {
+                Thread.sleep(STUB_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+            exchange.sendResponseHeaders(200, POSTER.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(POSTER);
+            }
+        });
+        stub.setExecutor(stubThreads);
+        stub.start();
+        posterUrl = "http://127.0.0.1:" + stub.getAddress().getPort() + "/t/p/w500/poster.jpg";
+
+        // те же настройки пула, что в WebClientConfig, без прокси
+        connectionProvider = ConnectionProvider.builder("tmdb-stub")
+                .maxConnections(IN_FLIGHT)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        listenerThreads = Executors.newFixedThreadPool(LISTENER_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        listenerThreads.shutdownNow();
+        connectionProvider.dispose();
+        stub.stop(0);
+        stubThreads.shutdownNow();
+    }
+
+    private Mono<byte[]> downloadPoster() {
+        return webClient.get()
+                .uri(posterUrl)
+                .retrieve()
+                .bodyToMono(byte[].class);
+    }
+
+    @Benchmark
+    public long blockingListeners() throws Exception {
+        List<Future<byte[]>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            responses.add(listenerThreads.submit(() -> downloadPoster().block()));
+        }
+        long bytes = 0;
+        for (Future<byte[]> response : responses) {
+            bytes += response.get().length;
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long reactiveListeners() {
+        return Flux.range(0, requests)
+                .flatMap(i -> downloadPoster(), IN_FLIGHT)
+                .map(poster -> (long) poster.length)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TmdbConsumerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
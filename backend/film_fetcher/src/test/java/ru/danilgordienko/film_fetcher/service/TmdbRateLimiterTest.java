@@ -0,0 +1,76 @@
+package ru.danilgordienko.film_fetcher.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import ru.danilgordienko.film_fetcher.service.impl.TmdbRateLimiter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TmdbRateLimiterTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testBurstPassesWithoutWaiting() {
+        TmdbRateLimiter limiter = new TmdbRateLimiter(10, 5, meterRegistry);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire().block(TIMEOUT);
+        }
+
+        assertTrue(elapsedMillis(start) < 80);
+        assertEquals(0, meterRegistry.counter("tmdb.requests.throttled").count());
+    }
+
+    @Test
+    void testRequestsOverBurstAreSpreadAtConfiguredRate() {
+        // 20 запросов в секунду: токен каждые 50 мс
+        TmdbRateLimiter limiter = new TmdbRateLimiter(20, 1, meterRegistry);
+
+        long start = System.nanoTime();
+        Flux.range(0, 5)
+                .flatMap(i -> limiter.acquire())
+                .blockLast(TIMEOUT);
+
+        // первый запрос забирает запас, остальные четыре ждут 50, 100, 150 и 200 мс
+        long elapsed = elapsedMillis(start);
+        assertTrue(elapsed >= 180, "elapsed " + elapsed + " ms");
+        assertTrue(elapsed < 1000, "elapsed " + elapsed + " ms");
+        assertEquals(4, meterRegistry.counter("tmdb.requests.throttled").count());
+    }
+
+    @Test
+    void testTokensRefillWhileIdle() throws InterruptedException {
+        TmdbRateLimiter limiter = new TmdbRateLimiter(20, 2, meterRegistry);
+        limiter.acquire().block(TIMEOUT);
+        limiter.acquire().block(TIMEOUT);
+
+        // за 150 мс накапливается не больше burst токенов
+        TimeUnit.MILLISECONDS.sleep(150);
+        long start = System.nanoTime();
+        limiter.acquire().block(TIMEOUT);
+        limiter.acquire().block(TIMEOUT);
+        long refilled = elapsedMillis(start);
+        limiter.acquire().block(TIMEOUT);
+
+        assertTrue(refilled < 30, "refilled in " + refilled + " ms");
+        assertEquals(1, meterRegistry.counter("tmdb.requests.throttled").count());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,176 @@
+package ru.danilgordienko.film_fetcher.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import ru.danilgordienko.film_fetcher.exception.TmdbRateLimitedException;
+import ru.danilgordienko.film_fetcher.service.impl.TmdbRateLimiter;
+import ru.danilgordienko.film_fetcher.service.impl.TmdbWebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TmdbWebClient против заглушки TMDB на HttpServer из JDK (как в TmdbConsumerBenchmark).
+ */
+public class TmdbWebClientTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final byte[] BODY = "{\"page\":1}".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer stub;
+    private ExecutorService stubThreads;
+    private String baseUrl;
+    private SimpleMeterRegistry meterRegistry;
+
+    // запросы к заглушке и их If-None-Match
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Queue<String> ifNoneMatch = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        stubThreads = Executors.newVirtualThreadPerTaskExecutor();
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.setExecutor(stubThreads);
+        stub.start();
+        baseUrl = "http://127.0.0.1:" + stub.getAddress().getPort();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.stop(0);
+        stubThreads.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentRequestsOfOneUrlAreCoalesced() {
+        stub.createContext("/slow", exchange -> {
+            sleep(200);
+            respond(exchange, 200, Map.of(), BODY);
+        });
+        TmdbWebClient client = client(3);
+
+        List<byte[]> bodies = Flux.range(0, 5)
+                .flatMap(i -> client.getImage(baseUrl + "/slow"))
+                .collectList()
+                .block(TIMEOUT);
+
+        assertEquals(5, bodies.size());
+        bodies.forEach(body -> assertArrayEquals(BODY, body));
+        assertEquals(1, requests.get());
+        assertEquals(4, meterRegistry.counter("tmdb.requests.coalesced").count());
+    }
+
+    @Test
+    void testFreshResponseIsServedFromCache() {
+        stub.createContext("/fresh", exchange -> respond(exchange, 200, Map.of("Cache-Control", "max-age=60"), BODY));
+        TmdbWebClient client = client(3);
+
+        client.getJson(baseUrl + "/fresh", Map.class).block(TIMEOUT);
+        Map<?, ?> cached = client.getJson(baseUrl + "/fresh", Map.class).block(TIMEOUT);
+
+        assertEquals(1, cached.get("page"));
+        assertEquals(1, requests.get());
+        assertEquals(1, meterRegistry.counter("tmdb.cache.hits").count());
+    }
+
+    @Test
+    void testStaleResponseIsRevalidatedWithEtag() {
+        stub.createContext("/etag", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                respond(exchange, 304, Map.of("ETag", "\"v1\"", "Cache-Control", "no-cache"), null);
+            } else {
+                respond(exchange, 200, Map.of("ETag", "\"v1\"", "Cache-Control", "no-cache"), BODY);
+            }
+        });
+        TmdbWebClient client = client(3);
+
+        client.getJson(baseUrl + "/etag", Map.class).block(TIMEOUT);
+        Map<?, ?> revalidated = client.getJson(baseUrl + "/etag", Map.class).block(TIMEOUT);
+
+        // второй запрос уходит с If-None-Match, тело берётся из кэша
+        assertEquals(1, revalidated.get("page"));
+        assertEquals(2, requests.get());
+        assertEquals(List.of("\"v1\""), List.copyOf(ifNoneMatch));
+        assertEquals(1, meterRegistry.counter("tmdb.cache.revalidated").count());
+    }
+
+    @Test
+    void testRateLimitedRequestIsRetriedAfterRetryAfter() {
+        stub.createContext("/limited", exchange -> {
+            if (requests.get() == 0) {
+                respond(exchange, 429, Map.of("Retry-After", "1"), null);
+            } else {
+                respond(exchange, 200, Map.of(), BODY);
+            }
+        });
+        TmdbWebClient client = client(3);
+
+        long start = System.nanoTime();
+        Map<?, ?> body = client.getJson(baseUrl + "/limited", Map.class).block(TIMEOUT);
+
+        assertEquals(1, body.get("page"));
+        assertEquals(2, requests.get());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 1000);
+        assertEquals(1, meterRegistry.counter("tmdb.requests.rate_limited").count());
+    }
+
+    @Test
+    void testRateLimitErrorPropagatesAfterMaxRetries() {
+        stub.createContext("/limited", exchange -> respond(exchange, 429, Map.of("Retry-After", "1"), null));
+        TmdbWebClient client = client(0);
+
+        assertThrows(TmdbRateLimitedException.class,
+                () -> client.getJson(baseUrl + "/limited", Map.class).block(TIMEOUT));
+        assertEquals(1, requests.get());
+    }
+
+    private TmdbWebClient client(int maxRetries) {
+        TmdbRateLimiter rateLimiter = new TmdbRateLimiter(1000, 100, meterRegistry);
+        return new TmdbWebClient(WebClient.create(), rateLimiter, new ObjectMapper(), maxRetries, 1, meterRegistry);
+    }
+
+    private void respond(HttpExchange exchange, int status, Map<String, String> headers, byte[] body)
+            throws IOException {
+        requests.incrementAndGet();
+        String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (etag != null) {
+            ifNoneMatch.add(etag);
+        }
+        headers.forEach(exchange.getResponseHeaders()::add);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (body != null) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
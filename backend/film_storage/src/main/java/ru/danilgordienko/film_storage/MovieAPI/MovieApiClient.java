@@ -1,22 +1,34 @@
 package ru.danilgordienko.film_storage.MovieAPI;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.AsyncRabbitTemplate;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.*;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieDto;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.PosterRequestDto;
 import ru.danilgordienko.film_storage.config.RabbitConfig;
+import ru.danilgordienko.film_storage.exception.ServiceOverloadedException;
 import ru.danilgordienko.film_storage.model.entity.Genre;
-import ru.danilgordienko.film_storage.model.entity.Movie;
+import ru.danilgordienko.film_storage.model.enums.PosterSize;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -26,8 +38,29 @@ public class MovieApiClient {
     private final RabbitTemplate rabbitTemplate;
     private final ApplicationEventPublisher eventPublisher;
     private final RestTemplate restTemplate;
+    private final AsyncRabbitTemplate asyncRabbitTemplate;
+    private final MeterRegistry meterRegistry;
     private final int size = 20;
 
+    // ограничение на число одновременных RPC за постерами
+    @Value("${app.posters.rpc.max-in-flight:500}")
+    private int maxInFlight;
+
+    @Value("${app.posters.rpc.timeout-ms:10000}")
+    private long rpcTimeoutMs;
+
+    @Value("${app.posters.rpc.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    private Semaphore inFlight;
+
+    @PostConstruct
+    void initInFlightLimit() {
+        inFlight = new Semaphore(maxInFlight);
+        Gauge.builder("posters.rpc.in.flight", this, MovieApiClient::getPosterRequestsInFlight)
+                .register(meterRegistry);
+    }
+
     private Optional<Object> getRabbitResponse(String exchange, String routingKey, Object body) {
         log.debug("Request to RabbitMQ with body: {}", body.toString());
         try {
@@ -45,17 +78,65 @@ public class MovieApiClient {
         }
     }
 
-    public byte[] getPoster(Movie movie) {
-        log.debug("Getting poster for movie with id: {}", movie.getId());
-        var response = getRabbitResponse(
-                RabbitConfig.EXCHANGE,
-                RabbitConfig.ROUTING_KEY_POSTER,
-                movie.getPoster()
-        );
-        return response.map(r -> {
-            log.debug("Poster for movie with id: {} received", movie.getId());
-            return (byte[]) r;
-        }).orElse(new byte[0]);
+    /**
+     * Запрашивает постер у film_fetcher без блокировки потока: ответ приходит через direct reply-to.
+     * Запрос уходит в JSON, ответ приходит сырыми байтами (application/octet-stream) и читается без конвертера.
+     * Пустой массив означает, что у TMDB нет постера; ошибка RabbitMQ, таймаут или ответ с POSTER_ERROR_HEADER
+     * (TMDB вернул 5xx, 429 или не ответил) завершают future исключением.
+     *
+     * @throws ServiceOverloadedException если уже выполняется max-in-flight запросов
+     */
+    public CompletableFuture<byte[]> getPosterAsync(Long movieId, String posterPath, PosterSize size) {
+        log.debug("Getting {} poster for movie with id: {}", size.getValue(), movieId);
+        if (!inFlight.tryAcquire()) {
+            log.warn("Too many poster requests in flight, rejecting poster for movie {}", movieId);
+            throw new ServiceOverloadedException("Too many poster requests, try again later", retryAfterSeconds);
+        }
+        CompletableFuture<Message> response;
+        try {
+            Message request = rabbitTemplate.getMessageConverter()
+                    .toMessage(new PosterRequestDto(posterPath, size.getValue()), new MessageProperties());
+            response = asyncRabbitTemplate.sendAndReceive(
+                    RabbitConfig.EXCHANGE,
+                    RabbitConfig.ROUTING_KEY_POSTER,
+                    request
+            );
+        } catch (AmqpException e) {
+            inFlight.release();
+            log.error("Error while working with RabbitMQ: {}", e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return response
+                .orTimeout(rpcTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((r, e) -> inFlight.release())
+                .thenApply(reply -> {
+                    byte[] poster = readPoster(reply);
+                    log.debug("Poster for movie with id: {} received, {} bytes", movieId, poster.length);
+                    return poster;
+                });
+    }
+
+    // ответ с неожиданным типом или обрезанным телом считается ошибкой и не кэшируется как отсутствующий постер
+    private byte[] readPoster(Message reply) {
+        MessageProperties properties = reply.getMessageProperties();
+        Object error = properties.getHeader(RabbitConfig.POSTER_ERROR_HEADER);
+        if (error != null) {
+            throw new AmqpException("film_fetcher failed to download poster: " + error);
+        }
+        if (!MessageProperties.CONTENT_TYPE_BYTES.equals(properties.getContentType())) {
+            throw new AmqpException("Unexpected poster reply content type: " + properties.getContentType());
+        }
+        byte[] body = reply.getBody();
+        Object expectedSize = properties.getHeader(RabbitConfig.POSTER_SIZE_HEADER);
+        if (expectedSize instanceof Number number && number.longValue() != body.length) {
+            throw new AmqpException("Poster reply size mismatch: expected " + number + " bytes, got " + body.length);
+        }
+        return body;
+    }
+
+    // число занятых слотов для RPC за постерами
+    public int getPosterRequestsInFlight() {
+        return maxInFlight - inFlight.availablePermits();
     }
 
     public List<Genre> getGenres() {
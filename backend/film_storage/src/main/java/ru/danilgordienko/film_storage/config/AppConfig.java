@@ -1,5 +1,6 @@
 package ru.danilgordienko.film_storage.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -10,10 +11,12 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @EnableScheduling
 public class AppConfig {
     /**
-     * Задаем способ кодировки для пароля
+     * Задаем способ кодировки для пароля.
+     * При увеличении strength старые хеши пересчитываются при следующем входе
+     * (UserServiceImpl.updatePassword).
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
@@ -0,0 +1,15 @@
+package ru.danilgordienko.film_storage.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+import ru.danilgordienko.film_storage.model.enums.PosterSize;
+
+// параметр ?size=w185 в запросе постера
+@Component
+public class PosterSizeConverter implements Converter<String, PosterSize> {
+
+    @Override
+    public PosterSize convert(String source) {
+        return PosterSize.fromValue(source.trim());
+    }
+}
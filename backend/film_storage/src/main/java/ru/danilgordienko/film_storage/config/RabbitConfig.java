@@ -7,6 +7,7 @@ import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -24,6 +25,12 @@ public class RabbitConfig {
     public static final String ROUTING_KEY_PAGE = "movies.page.key";
     public static final String ROUTING_KEY_GENRE = "movies.genre.key";
 
+    // заголовки бинарного ответа с постером (тело application/octet-stream, без JSON)
+    public static final String POSTER_SIZE_HEADER = "x-poster-size";
+    public static final String POSTER_CONTENT_TYPE_HEADER = "x-poster-content-type";
+    // ответ с этим заголовком — ошибка загрузки из TMDB (5xx, 429, таймаут), а не отсутствие постера
+    public static final String POSTER_ERROR_HEADER = "x-poster-error";
+
     @Bean
     public Queue queue() {
         return new Queue(QUEUE, false);
@@ -81,5 +88,14 @@ public class RabbitConfig {
         return template;
     }
 
+    // RPC без блокировки потоков: ответы принимаются через direct reply-to (amq.rabbitmq.reply-to)
+    @Bean
+    public AsyncRabbitTemplate asyncRabbitTemplate(RabbitTemplate rabbitTemplate,
+                                                   @Value("${app.posters.rpc.timeout-ms:10000}") long timeoutMs) {
+        AsyncRabbitTemplate template = new AsyncRabbitTemplate(rabbitTemplate);
+        template.setReceiveTimeout(timeoutMs);
+        return template;
+    }
+
 }
 
@@ -7,6 +7,7 @@ import org.springframework.web.filter.CorsFilter;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -16,21 +17,23 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import ru.danilgordienko.film_storage.security.JWTAuthenticationFilter;
 import ru.danilgordienko.film_storage.security.JWTCore;
-import ru.danilgordienko.film_storage.service.UserService;
+import ru.danilgordienko.film_storage.security.PrincipalCache;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 import static org.springframework.security.config.http.SessionCreationPolicy.STATELESS;
 
 @Configuration
 @EnableWebSecurity
+// включает проверку @PreAuthorize на методах контроллеров
+@EnableMethodSecurity
 public class SecurityConfig {
 
     private final JWTCore jwtCore;
-    private final UserService userService;
+    private final PrincipalCache principalCache;
 
-    public SecurityConfig(JWTCore jwtCore, UserService userService) {
+    public SecurityConfig(JWTCore jwtCore, PrincipalCache principalCache) {
         this.jwtCore = jwtCore;
-        this.userService = userService;
+        this.principalCache = principalCache;
     }
 
     /**
@@ -68,11 +71,13 @@ public class SecurityConfig {
                 .cors(withDefaults())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("api/auth/login", "api/auth/register", "api/movies/{id}/poster").permitAll()
+                        // служебные операции: перестроение индексов и загрузка каталога
+                        .requestMatchers("/api/admin/**", "/api/movies/init/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(STATELESS))
                 //добавляем jwt фильтр перед страндартной проверкой логина и пароля
-                .addFilterBefore(new JWTAuthenticationFilter(jwtCore, userService), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(new JWTAuthenticationFilter(jwtCore, principalCache), UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 }
@@ -10,8 +10,11 @@ import org.springframework.web.bind.annotation.*;
 import ru.danilgordienko.film_storage.model.dto.AuthResponse;
 import ru.danilgordienko.film_storage.model.dto.UsersDto.UserLoginDto;
 import ru.danilgordienko.film_storage.model.dto.UsersDto.UserRegistrationDTO;
+import ru.danilgordienko.film_storage.security.PasswordHashingExecutor;
 import ru.danilgordienko.film_storage.service.AuthService;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
@@ -19,27 +22,33 @@ import ru.danilgordienko.film_storage.service.AuthService;
 public class AuthController {
 
     private final AuthService authService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
     /**
-     * Аутентификация пользователя и выдача JWT-токена
+     * Аутентификация пользователя и выдача JWT-токена.
+     * Проверка пароля выполняется в пуле хеширования, поток Tomcat сразу освобождается.
      */
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody @Valid UserLoginDto loginDto) {
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@RequestBody @Valid UserLoginDto loginDto) {
         log.info("[POST /api/auth/login] User login attempt: {}", loginDto.getUsername());
-        AuthResponse response = authService.login(loginDto);
-        log.info("[POST /api/auth/login] Successful authentication: {}", loginDto.getUsername());
-        return ResponseEntity.ok(response);
+        return passwordHashingExecutor.submit(() -> authService.login(loginDto))
+                .thenApply(response -> {
+                    log.info("[POST /api/auth/login] Successful authentication: {}", loginDto.getUsername());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     /**
      * Регистрация нового пользователя
      */
     @PostMapping("/register")
-    public ResponseEntity<AuthResponse> register(@RequestBody @Valid UserRegistrationDTO user) {
+    public CompletableFuture<ResponseEntity<AuthResponse>> register(@RequestBody @Valid UserRegistrationDTO user) {
         log.info("[POST /api/auth/register] User registration attempt: {}", user.getUsername());
-        AuthResponse response = authService.register(user);
-        log.info("[POST /api/auth/register] User successfully registered: {}", user.getUsername());
-        return ResponseEntity.ok(response);
+        return passwordHashingExecutor.submit(() -> authService.register(user))
+                .thenApply(response -> {
+                    log.info("[POST /api/auth/register] User successfully registered: {}", user.getUsername());
+                    return ResponseEntity.ok(response);
+                });
     }
 
     /*
@@ -1,19 +1,42 @@
 package ru.danilgordienko.film_storage.controller;
 
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieDetailsDto;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieListDto;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieSuggestionDto;
+import ru.danilgordienko.film_storage.model.dto.CatalogBootstrapStatusDto;
+import ru.danilgordienko.film_storage.model.dto.MovieFacetedSearchDto;
+import ru.danilgordienko.film_storage.model.dto.MovieSearchCriteria;
 import ru.danilgordienko.film_storage.model.dto.PageDto;
+import ru.danilgordienko.film_storage.model.enums.ExportFormat;
+import ru.danilgordienko.film_storage.model.enums.PosterSize;
 import ru.danilgordienko.film_storage.service.MovieService;
+import ru.danilgordienko.film_storage.service.PosterService;
+import ru.danilgordienko.film_storage.service.impl.CatalogBootstrap;
+import ru.danilgordienko.film_storage.service.impl.MovieSuggester;
+import ru.danilgordienko.film_storage.storage.PosterFile;
 
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/movies")
@@ -22,6 +45,19 @@ import java.util.List;
 public class MovieController {
 
     private final MovieService movieService;
+    private final PosterService posterService;
+    private final CatalogBootstrap catalogBootstrap;
+    private final MovieSuggester movieSuggester;
+
+    // атрибуты запроса, по которым Tomcat отправляет файл через sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // URL постера не меняется при смене картинки, поэтому кэш короткий и проверяется по ETag
+    @Value("${app.posters.http.max-age:1h}")
+    private Duration posterMaxAge = Duration.ofHours(1);
 
     /**
      * получение списка всех фильмов
@@ -39,6 +75,36 @@ public class MovieController {
         return ResponseEntity.ok(movies);
     }
 
+    /**
+     * потоковая выгрузка каталога в NDJSON или JSON массиве.
+     * Фильмы отдаются по возрастанию id, для продолжения выгрузки передаётся afterId последнего полученного фильма
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMovies(
+            @RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("GET /api/movies/export - Exporting movies after id {} as {}", afterId, format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024, true) : out;
+            movieService.exportMovies(afterId, format, target);
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            log.info("GET /api/movies/export - Export after id {} completed", afterId);
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format == ExportFormat.NDJSON ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     /**
      * получение списка фильмов по страницам
      */
@@ -69,19 +135,80 @@ public class MovieController {
         return ResponseEntity.ok(movie);
     }
 
-    // получение постера к фильму
+    // получение постера к фильму.
+    // Размер size: w92 и w185 для списков, w500 (по умолчанию) для страницы фильма.
+    // Промах ждёт ответа film_fetcher асинхронно, поток Tomcat при этом свободен.
+    // Файл отдаётся из локального хранилища: полный ответ через sendfile Tomcat (копирует ядро),
+    // запросы с Range и HEAD через FileSystemResource, который Spring режет на диапазоны сам.
+    // Браузер кэширует постер на posterMaxAge, дальше переспрашивает с If-None-Match
     @GetMapping("/{id}/poster")
-    public ResponseEntity<byte[]> getMoviePoster(@PathVariable Long id) {
-        log.info("GET /api/movies/{}/poster - Fetching movie poster", id);
-        byte[] poster = movieService.getPoster(id);
-        if (poster.length != 0) {
-            log.info("GET /api/movies/{}/poster - Poster retrieved successfully", id);
-            return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_JPEG)
-                    .body(poster);
+    public CompletableFuture<ResponseEntity<Resource>> getMoviePoster(
+            @PathVariable Long id,
+            @RequestParam(value = "size", defaultValue = "w500") PosterSize size,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request) {
+        log.info("GET /api/movies/{}/poster - Fetching {} movie poster", id, size.getValue());
+        return posterService.getPoster(id, size)
+                .thenApply(poster -> posterResponse(id, poster, range, ifNoneMatch, request));
+    }
+
+    // вызывается в потоке, завершившем загрузку, поэтому 304 собирается явно, без WebRequest
+    private ResponseEntity<Resource> posterResponse(Long id,
+                                                    Optional<PosterFile> poster,
+                                                    String range,
+                                                    String ifNoneMatch,
+                                                    HttpServletRequest request) {
+        if (poster.isEmpty()) {
+            log.warn("GET /api/movies/{}/poster - Poster not found", id);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        PosterFile file = poster.get();
+        String etag = "\"" + file.hash() + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(posterMaxAge).cachePublic();
+        if (etagMatches(ifNoneMatch, etag)) {
+            log.info("GET /api/movies/{}/poster - Poster not modified", id);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
         }
-        log.warn("GET /api/movies/{}/poster - Poster not found", id);
-        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (range == null && HttpMethod.GET.matches(request.getMethod())
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, file.size());
+            log.info("GET /api/movies/{}/poster - Poster sent with sendfile", id);
+            return response.contentLength(file.size()).build();
+        }
+
+        log.info("GET /api/movies/{}/poster - Poster retrieved successfully", id);
+        return response.body(new FileSystemResource(file.path()));
+    }
+
+    // If-None-Match: "a", W/"b" или *; слабое сравнение, как требует RFC 9110 для GET
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     // поиск всех фильмов по запросу query
@@ -98,13 +225,14 @@ public class MovieController {
         return ResponseEntity.ok(movies);
     }
 
-    // поиск фильмов по запросу query по страницам
+    // поиск фильмов по запросу query по страницам; после первых страниц — по cursor из предыдущего ответа
     @GetMapping("/search")
     public ResponseEntity<PageDto> searchMovies(@RequestParam("query") String query,
-                                                @RequestParam("page") int page) {
+                                                @RequestParam(value = "page", defaultValue = "0") int page,
+                                                @RequestParam(value = "cursor", required = false) String cursor) {
         log.info("GET /api/movies/search - Searching movies with query '{}' on page {}", query, page);
 
-        PageDto movies = movieService.searchMoviesPageByTitle(query, page);
+        PageDto movies = movieService.searchMoviesPageByTitle(query, page, cursor);
         if (movies.getContent().isEmpty()) {
             log.warn("GET /api/movies/search - No movies found for query '{}' on page {}", query, page);
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -113,6 +241,33 @@ public class MovieController {
         return ResponseEntity.ok(movies);
     }
 
+    /**
+     * поиск фильмов с фильтрами: жанры (любой из), годы выхода и рейтинг включительно.
+     * Вместе со страницей возвращает число подходящих фильмов по жанрам и десятилетиям
+     */
+    @GetMapping("/search/filter")
+    public ResponseEntity<MovieFacetedSearchDto> searchMoviesWithFilters(@ModelAttribute MovieSearchCriteria criteria,
+                                                                         @RequestParam(value = "page", defaultValue = "0") int page) {
+        log.info("GET /api/movies/search/filter - Searching movies with {} on page {}", criteria, page);
+
+        MovieFacetedSearchDto result = movieService.searchMoviesWithFacets(criteria, page);
+        log.info("GET /api/movies/search/filter - Found {} movies on page {}",
+                result.getPage().getTotalElements(), page);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * подсказки названий при вводе: id, название и год, не больше app.search.suggest.max-results.
+     * Пустой список отдаётся с 200, чтобы клиент просто очищал выпадающий список;
+     * запрос идёт на каждое нажатие клавиши, поэтому логируется на уровне debug
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<MovieSuggestionDto>> suggestMovies(@RequestParam("query") String query,
+                                                                  @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        log.debug("GET /api/movies/suggest - Suggesting movies for '{}'", query);
+        return ResponseEntity.ok(movieSuggester.suggest(query, limit));
+    }
+
     @PostMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<String> deleteMovie(@RequestParam("id") Long id){
@@ -122,13 +277,24 @@ public class MovieController {
         return ResponseEntity.ok().build();
     }
 
+    // запуск загрузки каталога из страниц популярных фильмов fromPage..toPage, выполняется в фоне
     @PostMapping("/init")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> initMovies(){
-        log.info("POST /api/movies/init - Initializing movies");
-        movieService.initPopularMovies();
-        log.info("POST /api/movies/init - Movies added successfully");
-        return  ResponseEntity.ok().build();
+    public ResponseEntity<CatalogBootstrapStatusDto> initMovies(
+            @RequestParam(value = "fromPage", defaultValue = "${app.catalog.bootstrap.from-page:1}") int fromPage,
+            @RequestParam(value = "toPage", defaultValue = "${app.catalog.bootstrap.to-page:5}") int toPage) {
+        log.info("POST /api/movies/init - Starting catalog bootstrap for pages {}-{}", fromPage, toPage);
+        CatalogBootstrapStatusDto status = catalogBootstrap.start(fromPage, toPage);
+        log.info("POST /api/movies/init - Catalog bootstrap run {} started", status.getRunId());
+        return ResponseEntity.accepted().body(status);
+    }
+
+    // прогресс загрузки каталога: страницы, фильмы в секунду, ошибки
+    @GetMapping("/init/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CatalogBootstrapStatusDto> getInitStatus() {
+        log.info("GET /api/movies/init/status - Fetching catalog bootstrap status");
+        return ResponseEntity.ok(catalogBootstrap.getStatus());
     }
 
 }
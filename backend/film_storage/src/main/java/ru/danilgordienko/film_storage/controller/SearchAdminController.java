@@ -0,0 +1,42 @@
+package ru.danilgordienko.film_storage.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import ru.danilgordienko.film_storage.model.dto.SearchReindexStatusDto;
+import ru.danilgordienko.film_storage.model.enums.SearchEntityType;
+import ru.danilgordienko.film_storage.service.impl.SearchReindexer;
+
+@RequiredArgsConstructor
+@RestController
+@Slf4j
+@RequestMapping("/api/admin/search")
+@PreAuthorize("hasRole('ADMIN')")
+public class SearchAdminController {
+
+    private final SearchReindexer searchReindexer;
+
+    // перестроение индекса type (MOVIE, USER) в новый индекс с переключением псевдонима, выполняется в фоне
+    @PostMapping("/reindex")
+    public ResponseEntity<SearchReindexStatusDto> startReindex(@RequestParam("type") SearchEntityType type) {
+        log.info("POST /api/admin/search/reindex - Starting reindex of {}", type);
+        SearchReindexStatusDto status = searchReindexer.start(type);
+        log.info("POST /api/admin/search/reindex - Reindex into {} started", status.getIndex());
+        return ResponseEntity.accepted().body(status);
+    }
+
+    // прогресс: документы, документы в секунду, ошибка
+    @GetMapping("/reindex")
+    public ResponseEntity<SearchReindexStatusDto> getReindexStatus() {
+        log.info("GET /api/admin/search/reindex - Fetching reindex status");
+        return ResponseEntity.ok(searchReindexer.getStatus());
+    }
+
+    @DeleteMapping("/reindex")
+    public ResponseEntity<SearchReindexStatusDto> cancelReindex() {
+        log.info("DELETE /api/admin/search/reindex - Cancelling reindex");
+        return ResponseEntity.ok(searchReindexer.cancel());
+    }
+}
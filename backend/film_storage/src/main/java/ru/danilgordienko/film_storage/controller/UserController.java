@@ -12,8 +12,11 @@ import org.springframework.web.multipart.MultipartFile;
 import ru.danilgordienko.film_storage.model.dto.PageDto;
 import ru.danilgordienko.film_storage.model.dto.UsersDto.*;
 import ru.danilgordienko.film_storage.model.enums.RatingVisibility;
+import ru.danilgordienko.film_storage.security.PasswordHashingExecutor;
 import ru.danilgordienko.film_storage.service.UserService;
 
+import java.util.concurrent.CompletableFuture;
+
 @RequiredArgsConstructor
 @RestController
 @Slf4j
@@ -21,6 +24,7 @@ import ru.danilgordienko.film_storage.service.UserService;
 public class UserController {
 
     private final UserService userService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
     // получение инфо пользователя по id
     @GetMapping("/{id}/info")
@@ -49,13 +53,14 @@ public class UserController {
         return ResponseEntity.ok(userInfoDto);
     }
 
-    // поиск пользователя по запросу query
+    // поиск пользователя по запросу query; после первых страниц — по cursor из предыдущего ответа
     @GetMapping("/search")
     public ResponseEntity<PageDto<UserListDto>> searchUsers(
             @RequestParam("query") String query,
-            @RequestParam("page") int page) {
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "cursor", required = false) String cursor) {
         log.info("GET /api/users/search - Search users request by query: '{}'", query);
-        PageDto<UserListDto> users = userService.searchUserByUsername(query, page);
+        PageDto<UserListDto> users = userService.searchUserByUsername(query, page, cursor);
 //        if (users.getContent().isEmpty()) {
 //            log.warn("GET /api/users/search - No users found for query '{}'", query);
 //            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -76,12 +81,15 @@ public class UserController {
     }
 
     @PostMapping("me/password")
-    public ResponseEntity<String> changePassword(@RequestBody @Valid UserChangePasswordDto dto,
+    public CompletableFuture<ResponseEntity<String>> changePassword(@RequestBody @Valid UserChangePasswordDto dto,
                                                @AuthenticationPrincipal UserDetails userDetails) {
         log.info("POST /api/users/me/password - Request to change password for user {}", userDetails.getUsername());
-        userService.updateUserPassword(dto, userDetails.getUsername());
-        log.info("POST /api/users/me/password - Password changed successfully for user {}", userDetails.getUsername());
-        return ResponseEntity.ok().build();
+        String username = userDetails.getUsername();
+        return passwordHashingExecutor.submit(() -> {
+            userService.updateUserPassword(dto, username);
+            log.info("POST /api/users/me/password - Password changed successfully for user {}", username);
+            return ResponseEntity.ok().<String>build();
+        });
     }
 
     @PostMapping("/{id}")
@@ -0,0 +1,8 @@
+package ru.danilgordienko.film_storage.exception;
+
+// загрузка каталога уже выполняется
+public class CatalogBootstrapRunningException extends RuntimeException {
+    public CatalogBootstrapRunningException(String message) {
+        super(message);
+    }
+}
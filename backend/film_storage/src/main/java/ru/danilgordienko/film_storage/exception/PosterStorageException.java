@@ -0,0 +1,7 @@
+package ru.danilgordienko.film_storage.exception;
+
+public class PosterStorageException extends RuntimeException {
+    public PosterStorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
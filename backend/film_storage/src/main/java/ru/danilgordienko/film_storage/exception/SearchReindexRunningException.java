@@ -0,0 +1,8 @@
+package ru.danilgordienko.film_storage.exception;
+
+// перестроение индекса Elasticsearch уже выполняется
+public class SearchReindexRunningException extends RuntimeException {
+    public SearchReindexRunningException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.danilgordienko.film_storage.exception;
+
+import lombok.Getter;
+
+// Очередь задач переполнена, клиенту нужно повторить запрос позже
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,11 +1,14 @@
 package ru.danilgordienko.film_storage.exception.handler;
 
 import org.hibernate.MappingException;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpReplyTimeoutException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -15,6 +18,7 @@ import ru.danilgordienko.film_storage.exception.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -99,6 +103,43 @@ public class GlobalExceptionHandler {
                 .body("Ошибка подключения к базе данных: " + ex.getMessage());
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<String> handleServiceOverloaded(ServiceOverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
+    // film_fetcher не ответил на RPC вовремя
+    @ExceptionHandler({TimeoutException.class, AmqpReplyTimeoutException.class})
+    public ResponseEntity<String> handleUpstreamTimeout(Exception ex) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body("Сервис фильмов не ответил вовремя: " + ex.getMessage());
+    }
+
+    // ошибка RabbitMQ или ответ film_fetcher с ошибкой
+    @ExceptionHandler(AmqpException.class)
+    public ResponseEntity<String> handleUpstreamError(AmqpException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                .body("Ошибка сервиса фильмов: " + ex.getMessage());
+    }
+
+    @ExceptionHandler(CatalogBootstrapRunningException.class)
+    public ResponseEntity<String> handleCatalogBootstrapRunning(CatalogBootstrapRunningException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(SearchReindexRunningException.class)
+    public ResponseEntity<String> handleSearchReindexRunning(SearchReindexRunningException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Ошибка при запросе. " + ex.getMessage());
+    }
+
     @ExceptionHandler(ElasticsearchConnectionException.class)
     public ResponseEntity<String> handleElasticError(ElasticsearchConnectionException ex) {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
@@ -0,0 +1,31 @@
+package ru.danilgordienko.film_storage.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// прогресс загрузки каталога для админки
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogBootstrapStatusDto {
+    private Long runId;
+    private boolean running;
+    private int fromPage;
+    private int toPage;
+    private int pagesTotal;
+    // включая страницы, сохранённые до рестарта
+    private int pagesDone;
+    private long moviesSaved;
+    private double moviesPerSecond;
+    private int errors;
+    // страницы, исчерпавшие попытки; запуск с ними закрывается с ошибками
+    private int failedPages;
+    private String lastError;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,14 @@
+package ru.danilgordienko.film_storage.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// значение фасета и число найденных фильмов с ним
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDto {
+    private String value;
+    private long count;
+}
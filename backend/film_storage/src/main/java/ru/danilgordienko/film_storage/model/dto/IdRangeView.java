@@ -0,0 +1,7 @@
+package ru.danilgordienko.film_storage.model.dto;
+
+// наименьший и наибольший id таблицы, NULL если таблица пуста
+public interface IdRangeView {
+    Long getMinId();
+    Long getMaxId();
+}
@@ -0,0 +1,22 @@
+package ru.danilgordienko.film_storage.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieListDto;
+
+import java.util.List;
+
+// страница результатов и счётчики по всем фильмам, подходящим под фильтры
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieFacetedSearchDto {
+    private PageDto<MovieListDto> page;
+    // по убыванию числа фильмов
+    private List<FacetCountDto> genres;
+    // десятилетия ("1990") по возрастанию
+    private List<FacetCountDto> decades;
+}
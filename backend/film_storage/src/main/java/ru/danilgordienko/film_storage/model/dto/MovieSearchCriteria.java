@@ -0,0 +1,29 @@
+package ru.danilgordienko.film_storage.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+import ru.danilgordienko.film_storage.model.enums.MovieSearchSort;
+
+import java.util.List;
+
+// параметры поиска фильмов с фильтрами, все необязательные; границы диапазонов включаются
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieSearchCriteria {
+    private String query;
+    // фильм подходит, если у него есть хотя бы один из жанров
+    private List<String> genres;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Double ratingFrom;
+    private Double ratingTo;
+    @Builder.Default
+    private MovieSearchSort sort = MovieSearchSort.RELEVANCE;
+    @Builder.Default
+    private Sort.Direction direction = Sort.Direction.DESC;
+}
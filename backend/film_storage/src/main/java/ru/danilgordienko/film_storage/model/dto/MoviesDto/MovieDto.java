@@ -11,6 +11,9 @@ import java.util.Set;
 @Data
 public class MovieDto {
 
+    @JsonProperty("id")
+    private Long tmdbId;
+
     private Date release_date;
 
     @JsonProperty("overview")
@@ -0,0 +1,10 @@
+package ru.danilgordienko.film_storage.model.dto.MoviesDto;
+
+import java.util.Date;
+
+// строка выгрузки каталога: только скалярные поля, сущность не создаётся
+public interface MovieExportView extends MovieRatingView {
+    String getTitle();
+    Date getReleaseDate();
+    String getPoster();
+}
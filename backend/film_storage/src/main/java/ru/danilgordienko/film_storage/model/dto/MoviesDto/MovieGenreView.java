@@ -0,0 +1,7 @@
+package ru.danilgordienko.film_storage.model.dto.MoviesDto;
+
+// название жанра фильма
+public interface MovieGenreView {
+    Long getMovieId();
+    String getName();
+}
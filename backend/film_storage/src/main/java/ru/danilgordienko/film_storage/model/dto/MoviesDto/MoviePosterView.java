@@ -0,0 +1,10 @@
+package ru.danilgordienko.film_storage.model.dto.MoviesDto;
+
+// путь постера в TMDB и хеш скачанного файла нужного размера;
+// posterMissing — TMDB ответил, что постера этого размера нет
+public interface MoviePosterView {
+    Long getMovieId();
+    String getPoster();
+    String getPosterHash();
+    Boolean getPosterMissing();
+}
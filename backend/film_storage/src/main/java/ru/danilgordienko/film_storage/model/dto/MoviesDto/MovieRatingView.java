@@ -0,0 +1,13 @@
+package ru.danilgordienko.film_storage.model.dto.MoviesDto;
+
+// счётчики оценок фильма, прочитанные из бд без загрузки сущности
+public interface MovieRatingView {
+    Long getMovieId();
+    Integer getRatingCount();
+    Long getRatingSum();
+
+    default double getAverage() {
+        Integer count = getRatingCount();
+        return count == null || count == 0 ? 0 : (double) getRatingSum() / count;
+    }
+}
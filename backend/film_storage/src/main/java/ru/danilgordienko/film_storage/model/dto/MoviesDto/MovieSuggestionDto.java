@@ -0,0 +1,17 @@
+package ru.danilgordienko.film_storage.model.dto.MoviesDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// подсказка поиска: только то, что нужно выпадающему списку
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieSuggestionDto {
+    private Long id;
+
+    private String title;
+
+    private Integer year;
+}
@@ -0,0 +1,14 @@
+package ru.danilgordienko.film_storage.model.dto.MoviesDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// запрос постера в film_fetcher: путь в TMDB и размер
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PosterRequestDto {
+    private String posterPath;
+    private String size;
+}
@@ -15,4 +15,10 @@ public class PageDto<T> implements Serializable {
     private List<T> content;
     private int number;
     private long totalElements;
+    // продолжение поиска в Elasticsearch после страниц по номеру; null — страниц больше нет
+    private String cursor;
+
+    public PageDto(List<T> content, int number, long totalElements) {
+        this(content, number, totalElements, null);
+    }
 }
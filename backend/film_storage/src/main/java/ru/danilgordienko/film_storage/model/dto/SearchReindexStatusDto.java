@@ -0,0 +1,31 @@
+package ru.danilgordienko.film_storage.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.danilgordienko.film_storage.model.enums.SearchEntityType;
+
+import java.time.LocalDateTime;
+
+// прогресс перестроения индекса Elasticsearch для админки
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchReindexStatusDto {
+    private SearchEntityType type;
+    // псевдоним, который переключается на новый индекс
+    private String alias;
+    private String index;
+    private boolean running;
+    private boolean cancelled;
+    // псевдоним переключён на новый индекс
+    private boolean completed;
+    private long docsTotal;
+    private long docsIndexed;
+    private double docsPerSecond;
+    private String lastError;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,10 @@
+package ru.danilgordienko.film_storage.model.dto.UsersDto;
+
+// Проекция пользователя для аутентификации: без аватара и пароля.
+// Одна строка на каждую роль пользователя.
+public interface UserPrincipalView {
+    Long getId();
+    String getEmail();
+    String getUsername();
+    String getRole();
+}
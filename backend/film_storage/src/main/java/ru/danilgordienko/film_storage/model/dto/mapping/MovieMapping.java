@@ -9,26 +9,35 @@ import ru.danilgordienko.film_storage.model.dto.PageDto;
 import ru.danilgordienko.film_storage.model.entity.Genre;
 import ru.danilgordienko.film_storage.model.entity.Movie;
 import ru.danilgordienko.film_storage.model.entity.MovieDocument;
-import ru.danilgordienko.film_storage.model.entity.Rating;
+import ru.danilgordienko.film_storage.service.impl.GenreDictionary;
 
+import java.time.ZoneOffset;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
-@Mapper(componentModel = "spring", uses = RatingMapping.class)
+@Mapper(componentModel = "spring", uses = {RatingMapping.class, GenreDictionary.class})
 public interface MovieMapping {
 
-    // из JPA Movie
-    @Mapping(target = "genres", expression = "java(mapGenres(movie.getGenres()))")
-    @Mapping(target = "rating", expression = "java(calculateAverageRating(movie.getRatings()))")
+    // из JPA Movie; в списках названия жанров берутся из справочника по genreIds
+    @Mapping(target = "genres", source = "genreIds", qualifiedByName = "genreNames")
+    @Mapping(target = "rating", expression = "java(roundRating(movie.getAverageRating()))")
     //@Mapping(target = "poster", expression = "java(getPosterUrl(movie.getId()))")
     @Mapping(target = "id", expression = "java(movie.getId())")
     MovieListDto toMovieListDto(Movie movie);
 
-    @Mapping(target = "genres", expression = "java(mapGenres(movie.getGenres()))")
-    @Mapping(target = "rating", expression = "java(calculateAverageRating(movie.getRatings()))")
+    @Mapping(target = "genres", source = "genreIds", qualifiedByName = "genreNames")
+    @Mapping(target = "rating", expression = "java(roundRating(movie.getAverageRating()))")
     @Mapping(target = "id", expression = "java(movie.getId())")
     MovieListCacheDto toMovieListCacheDto(Movie movie);
 
+    // строка выгрузки каталога
+    @Mapping(target = "id", source = "movie.movieId")
+    @Mapping(target = "release_date", source = "movie.releaseDate")
+    @Mapping(target = "genres", source = "genres")
+    @Mapping(target = "rating", expression = "java(roundRating(movie.getAverage()))")
+    MovieListDto toMovieListDto(MovieExportView movie, List<String> genres);
+
     // из Elasticsearch MovieDocument
     //@Mapping(target = "posterUrl", expression = "java(getPosterUrl(movie.getId()))")
     @Mapping(target = "rating", source = "averageRating")
@@ -41,21 +50,33 @@ public interface MovieMapping {
     //@Mapping(target = "posterUrl", expression = "java(getPosterUrl(movie.getId()))")
     MovieDetailsDto toMovieDetailsDto(Movie movie);
 
-    @Mapping(target = "genres", expression = "java(mapGenres(movie.getGenres()))")
-    @Mapping(target = "averageRating", expression = "java(calculateAverageRating(movie.getRatings()))")
+    @Mapping(target = "genres", source = "genreIds", qualifiedByName = "genreNames")
+    @Mapping(target = "averageRating", expression = "java(roundRating(movie.getAverageRating()))")
+    @Mapping(target = "titleSuggest", source = "title")
     MovieDocument toMovieDocument(Movie movie);
 
+    // подсказка из документа, в котором загружены только id, title и release_date
+    @Mapping(target = "year", expression = "java(releaseYear(movie.getRelease_date()))")
+    MovieSuggestionDto toMovieSuggestionDto(MovieDocument movie);
+
     MovieDto toMovieDto(Movie movie);
 
     Movie toMovie(MovieDto movie);
 
+    @Mapping(target = "cursor", ignore = true)
     PageDto<MovieListCacheDto> toPageDto(Page<MovieListCacheDto> movie);
 
+    @Mapping(target = "cursor", ignore = true)
     PageDto<MovieListDto> toMovieListPageDto(Page<MovieDocument> movie);
 
+    @Mapping(target = "cursor", ignore = true)
     PageDto<MovieListCacheDto> toMovieListCachePageDto(Page<Movie> movie);
 
 
+    default Integer releaseYear(Date releaseDate) {
+        return releaseDate == null ? null : releaseDate.toInstant().atZone(ZoneOffset.UTC).getYear();
+    }
+
     //преобразует жанры в список с названиями жанров
     default List<String> mapGenres(Set<Genre> genres) {
         return genres.stream()
@@ -68,15 +89,8 @@ public interface MovieMapping {
         return "http://localhost:8080/api/movies/" + id + "/poster";
     }
 
-    //считает средний рейтинг
-    default double calculateAverageRating(List<Rating> ratings) {
-        if (ratings == null || ratings.isEmpty()) {
-            return 0;
-        }
-        double avg = ratings.stream()
-                .mapToInt(Rating::getRating)
-                .average()
-                .orElse(0);
-        return Math.round(avg * 10.0) / 10.0;
+    //округляет рейтинг до одного знака
+    default double roundRating(double rating) {
+        return Math.round(rating * 10.0) / 10.0;
     }
 }
@@ -36,8 +36,10 @@ public interface UserMapping {
     UserListDto  toUserListDto(User user);
 
 
+    @Mapping(target = "cursor", ignore = true)
     PageDto<UserListDto>  toUserListDtoPage(Page<User> page);
 
+    @Mapping(target = "cursor", ignore = true)
     @Mapping(target = "content", source = "page", qualifiedByName = "getContent")
     PageDto<UserListDto>  toUserListDtoPageFromUserDocument(Page<UserDocument> page);
 
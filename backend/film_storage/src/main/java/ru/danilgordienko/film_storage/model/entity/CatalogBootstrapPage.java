@@ -0,0 +1,34 @@
+package ru.danilgordienko.film_storage.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// страница, фильмы которой уже сохранены в рамках запуска
+@Data
+@Entity
+@Table(name = "catalog_bootstrap_pages")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogBootstrapPage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(nullable = false)
+    private int page;
+
+    @Column(nullable = false)
+    private int movies;
+
+    @Column(nullable = false)
+    private LocalDateTime completedAt;
+}
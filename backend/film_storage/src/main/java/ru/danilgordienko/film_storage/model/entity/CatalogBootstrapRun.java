@@ -0,0 +1,37 @@
+package ru.danilgordienko.film_storage.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// запуск загрузки каталога для страниц популярных фильмов fromPage..toPage
+@Data
+@Entity
+@Table(name = "catalog_bootstrap_runs")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogBootstrapRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private int fromPage;
+
+    @Column(nullable = false)
+    private int toPage;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    // страницы, так и не загруженные закрытым запуском
+    @Column(nullable = false)
+    private int failedPages;
+}
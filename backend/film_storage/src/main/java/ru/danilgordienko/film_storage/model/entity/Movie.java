@@ -6,6 +6,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.util.*;
 
@@ -20,6 +22,10 @@ public class Movie {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // id фильма в TMDB, ключ обновления при повторной загрузке
+    @Column(name = "tmdb_id", unique = true)
+    private Long tmdbId;
+
     private Date release_date;
 
     @JsonProperty("overview")
@@ -39,7 +45,34 @@ public class Movie {
     )
     private Set<Genre> genres = new HashSet<>();
 
+    // id жанров фильма по возрастанию, копия movie_genres для списков:
+    // названия берутся из GenreDictionary без загрузки связи genres
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "genre_ids", nullable = false)
+    private long[] genreIds = new long[0];
+
     @OneToMany(mappedBy = "movie", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Rating> ratings = new ArrayList<>();
 
+    // внешняя версия документа в Elasticsearch, меняется только MovieRepository.bumpSearchVersion
+    @Column(name = "search_version", nullable = false, updatable = false)
+    private long searchVersion;
+
+    // счётчики оценок меняются только атомарными запросами MovieRepository.applyRatingDelta,
+    // поэтому при сохранении сущности они не перезаписываются
+    @Column(name = "rating_count", nullable = false, updatable = false)
+    private int ratingCount;
+
+    @Column(name = "rating_sum", nullable = false, updatable = false)
+    private long ratingSum;
+
+    // число оценок с баллом i + 1
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "rating_histogram", nullable = false, updatable = false)
+    private int[] ratingHistogram = new int[10];
+
+    public double getAverageRating() {
+        return ratingCount == 0 ? 0 : (double) ratingSum / ratingCount;
+    }
+
 }
@@ -3,23 +3,52 @@ package ru.danilgordienko.film_storage.model.entity;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.*;
 
 import java.util.Date;
 import java.util.List;
 
+/**
+ * Документ фильма в индексе movies.
+ * Маппинг задан явно: анализаторы описаны в elasticsearch/movie-settings.json,
+ * новый маппинг применяется перестроением индекса (SearchReindexer).
+ */
 @Document(indexName = "movies")
+@Setting(settingPath = "/elasticsearch/movie-settings.json")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class MovieDocument {
+    @Id
+    @Field(type = FieldType.Long)
     private Long id;
 
+    // title — полнотекстовый поиск с русским стеммингом,
+    // title.prefix — префиксы слов (edge ngram), title.keyword — сортировка
+    @MultiField(
+            mainField = @Field(type = FieldType.Text, analyzer = "russian_text"),
+            otherFields = {
+                    @InnerField(suffix = "prefix", type = FieldType.Text,
+                            analyzer = "prefix_index", searchAnalyzer = "prefix_search", norms = false),
+                    @InnerField(suffix = "keyword", type = FieldType.Keyword,
+                            normalizer = "lowercase_normalizer", ignoreAbove = 256)
+            })
     private String title;
 
+    // копия title для подсказок при вводе (/api/movies/suggest):
+    // search_as_you_type сам строит подполя _2gram, _3gram и _index_prefix
+    @Field(name = "title_suggest", type = FieldType.Search_As_You_Type, analyzer = "prefix_search")
+    private String titleSuggest;
+
+    @Field(type = FieldType.Date, format = {DateFormat.date_optional_time, DateFormat.epoch_millis})
     private Date release_date;
 
+    // только фильтры и агрегации, поэтому keyword без анализа
+    @Field(type = FieldType.Keyword)
     private List<String> genres;
 
+    // рейтинг округлён до десятых
+    @Field(type = FieldType.Scaled_Float, scalingFactor = 10)
     private double averageRating;
 }
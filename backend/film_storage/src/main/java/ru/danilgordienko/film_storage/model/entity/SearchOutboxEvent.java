@@ -0,0 +1,50 @@
+package ru.danilgordienko.film_storage.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.danilgordienko.film_storage.model.enums.SearchEntityType;
+import ru.danilgordienko.film_storage.model.enums.SearchOperation;
+
+import java.time.LocalDateTime;
+
+// изменение документа Elasticsearch, ожидающее индексации
+@Data
+@Entity
+@Table(name = "search_outbox")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false)
+    private SearchEntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SearchOperation operation;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    // внешняя версия удаления; у INDEX NULL, версию берём из строки сущности при индексации
+    private Long version;
+}
@@ -38,6 +38,10 @@ public class User {
 
     private byte[] avatar;
 
+    // внешняя версия документа в Elasticsearch, меняется только UserRepository.bumpSearchVersion
+    @Column(name = "search_version", nullable = false, updatable = false)
+    private long searchVersion;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "rating_visibility", nullable = false)
     private RatingVisibility ratingVisibility = RatingVisibility.ALL;
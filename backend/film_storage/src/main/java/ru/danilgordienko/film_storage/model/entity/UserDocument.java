@@ -3,13 +3,31 @@ package ru.danilgordienko.film_storage.model.entity;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.*;
 
+/**
+ * Документ пользователя в индексе users.
+ * Анализаторы описаны в elasticsearch/user-settings.json.
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(indexName = "users")
+@Setting(settingPath = "/elasticsearch/user-settings.json")
 public class UserDocument {
+    @Id
+    @Field(type = FieldType.Long)
     private Long id;
+
+    // имена короткие, релевантность по длине поля не нужна — norms отключены
+    @MultiField(
+            mainField = @Field(type = FieldType.Text, analyzer = "name_text", norms = false),
+            otherFields = {
+                    @InnerField(suffix = "prefix", type = FieldType.Text,
+                            analyzer = "prefix_index", searchAnalyzer = "prefix_search", norms = false),
+                    @InnerField(suffix = "keyword", type = FieldType.Keyword,
+                            normalizer = "lowercase_normalizer", ignoreAbove = 256)
+            })
     private String username;
 }
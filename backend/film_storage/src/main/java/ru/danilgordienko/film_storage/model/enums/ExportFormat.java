@@ -0,0 +1,6 @@
+package ru.danilgordienko.film_storage.model.enums;
+
+// формат выгрузки каталога: по объекту на строку или один JSON массив
+public enum ExportFormat {
+    NDJSON, JSON
+}
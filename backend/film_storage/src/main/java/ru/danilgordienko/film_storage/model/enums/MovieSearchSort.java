@@ -0,0 +1,6 @@
+package ru.danilgordienko.film_storage.model.enums;
+
+// порядок результатов поиска с фильтрами; RELEVANCE имеет смысл только с текстом запроса
+public enum MovieSearchSort {
+    RELEVANCE, RATING, RELEASE_DATE
+}
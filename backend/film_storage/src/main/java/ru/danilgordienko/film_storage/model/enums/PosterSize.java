@@ -0,0 +1,22 @@
+package ru.danilgordienko.film_storage.model.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+// размеры постеров TMDB: w92 и w185 для списков, w500 для страницы фильма
+@Getter
+@RequiredArgsConstructor
+public enum PosterSize {
+    W92("w92"), W185("w185"), W500("w500");
+
+    private final String value;
+
+    public static PosterSize fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(size -> size.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown poster size: " + value));
+    }
+}
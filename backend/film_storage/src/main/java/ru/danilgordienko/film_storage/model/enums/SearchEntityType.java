@@ -0,0 +1,7 @@
+package ru.danilgordienko.film_storage.model.enums;
+
+// тип документа в Elasticsearch, который меняет событие outbox
+public enum SearchEntityType {
+    MOVIE,
+    USER
+}
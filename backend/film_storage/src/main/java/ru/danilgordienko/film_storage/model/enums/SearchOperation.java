@@ -0,0 +1,7 @@
+package ru.danilgordienko.film_storage.model.enums;
+
+// INDEX — документ перестраивается из текущего состояния в бд, DELETE — удаляется из индекса
+public enum SearchOperation {
+    INDEX,
+    DELETE
+}
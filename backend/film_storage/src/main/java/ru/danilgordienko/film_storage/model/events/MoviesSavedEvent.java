@@ -0,0 +1,18 @@
+package ru.danilgordienko.film_storage.model.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+// новые фильмы сохранены в бд
+public class MoviesSavedEvent extends ApplicationEvent {
+
+    @Getter
+    private final List<Long> movieIds;
+
+    public MoviesSavedEvent(Object source, List<Long> movieIds) {
+        super(source);
+        this.movieIds = movieIds;
+    }
+}
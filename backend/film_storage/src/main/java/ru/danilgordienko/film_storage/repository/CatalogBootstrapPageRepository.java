@@ -0,0 +1,34 @@
+package ru.danilgordienko.film_storage.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.danilgordienko.film_storage.model.entity.CatalogBootstrapPage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CatalogBootstrapPageRepository extends JpaRepository<CatalogBootstrapPage, Long> {
+
+    @Query("select p.page from CatalogBootstrapPage p where p.runId = :runId")
+    List<Integer> findPagesByRunId(@Param("runId") Long runId);
+
+    // неудачная попытка загрузить страницу, счётчик переживает рестарты
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO catalog_bootstrap_page_failures (run_id, page, attempts, last_error, failed_at) " +
+            "VALUES (:runId, :page, 1, :error, :failedAt) " +
+            "ON CONFLICT (run_id, page) DO UPDATE SET attempts = catalog_bootstrap_page_failures.attempts + 1, " +
+            "last_error = EXCLUDED.last_error, failed_at = EXCLUDED.failed_at", nativeQuery = true)
+    int recordFailure(@Param("runId") Long runId, @Param("page") int page,
+                      @Param("error") String error, @Param("failedAt") LocalDateTime failedAt);
+
+    // несохранённые страницы, исчерпавшие попытки
+    @Query(value = "SELECT f.page FROM catalog_bootstrap_page_failures f " +
+            "WHERE f.run_id = :runId AND f.attempts >= :maxAttempts " +
+            "AND NOT EXISTS (SELECT 1 FROM catalog_bootstrap_pages p WHERE p.run_id = f.run_id AND p.page = f.page)",
+            nativeQuery = true)
+    List<Integer> findExhaustedPages(@Param("runId") Long runId, @Param("maxAttempts") int maxAttempts);
+}
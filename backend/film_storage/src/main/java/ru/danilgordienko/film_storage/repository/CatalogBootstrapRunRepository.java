@@ -0,0 +1,30 @@
+package ru.danilgordienko.film_storage.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.danilgordienko.film_storage.model.entity.CatalogBootstrapRun;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CatalogBootstrapRunRepository extends JpaRepository<CatalogBootstrapRun, Long> {
+
+    // последний незавершённый запуск, его продолжаем после рестарта
+    Optional<CatalogBootstrapRun> findFirstByFinishedAtIsNullOrderByIdDesc();
+
+    // failedPages > 0: запуск закрыт с ошибками, эти страницы исчерпали попытки
+    @Transactional
+    @Modifying
+    @Query("update CatalogBootstrapRun r set r.finishedAt = :finishedAt, r.failedPages = :failedPages where r.id = :id")
+    int markFinished(@Param("id") Long id, @Param("finishedAt") LocalDateTime finishedAt,
+                     @Param("failedPages") int failedPages);
+
+    // новый запуск заменяет незавершённые
+    @Transactional
+    @Modifying
+    @Query("update CatalogBootstrapRun r set r.finishedAt = :finishedAt where r.finishedAt is null")
+    int finishUnfinished(@Param("finishedAt") LocalDateTime finishedAt);
+}
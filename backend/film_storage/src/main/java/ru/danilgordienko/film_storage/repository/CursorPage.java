@@ -0,0 +1,10 @@
+package ru.danilgordienko.film_storage.repository;
+
+import java.util.List;
+
+/**
+ * Страница результатов поиска в Elasticsearch.
+ * cursor — непрозрачная строка для следующей страницы, null на последней.
+ */
+public record CursorPage<T>(List<T> content, int number, long totalElements, String cursor) {
+}
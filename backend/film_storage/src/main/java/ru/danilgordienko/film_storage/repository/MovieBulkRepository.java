@@ -0,0 +1,17 @@
+package ru.danilgordienko.film_storage.repository;
+
+import ru.danilgordienko.film_storage.model.entity.Movie;
+
+import java.util.List;
+
+// пакетная запись фильмов в обход JPA
+public interface MovieBulkRepository {
+
+    /**
+     * Вставляет новые фильмы и обновляет изменившиеся по tmdb_id, вместе с их жанрами.
+     * Фильмы, у которых ничего не изменилось, не трогаются.
+     *
+     * @return id вставленных и изменённых фильмов
+     */
+    List<Long> upsertAll(List<Movie> movies);
+}
@@ -0,0 +1,202 @@
+package ru.danilgordienko.film_storage.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.danilgordienko.film_storage.model.entity.Genre;
+import ru.danilgordienko.film_storage.model.entity.Movie;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Запись фильмов одним INSERT ... ON CONFLICT (tmdb_id) DO UPDATE на пачку.
+ * Строка обновляется только если поля действительно изменились (IS DISTINCT FROM),
+ * RETURNING возвращает только вставленные и изменённые строки — только их нужно индексировать.
+ * genre_ids входит в сравнение, поэтому изменение одних жанров фильма тоже считается изменением.
+ *
+ * Фильмы, сохранённые до появления tmdb_id, хранят в нём NULL, и ON CONFLICT их не видит.
+ * Перед вставкой такие строки получают tmdb_id по совпадению названия и даты выхода,
+ * иначе первая же загрузка каталога продублировала бы их.
+ *
+ * Если у фильма изменился poster, его строки movie_poster_variants удаляются: id фильма уже среди
+ * изменённых, поэтому после коммита PosterPrefetcher скачает новую картинку.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class MovieBulkRepositoryImpl implements MovieBulkRepository {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int COLUMNS = 6;
+    private static final int[] ROW_TYPES =
+            {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR};
+    // genre_ids передаётся литералом массива '{1,2}', чтобы не создавать java.sql.Array на каждую строку
+    private static final String ROW = "(?, ?, ?, ?, ?, ?::bigint[])";
+
+    private static final int ADOPT_COLUMNS = 3;
+    private static final int[] ADOPT_ROW_TYPES = {Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP};
+    // одной строке без tmdb_id достаётся один фильм TMDB, и tmdb_id, уже занятый другой строкой, не берётся
+    private static final String ADOPT_PREFIX =
+            "UPDATE movies m SET tmdb_id = c.tmdb_id FROM (" +
+            "SELECT DISTINCT ON (v.tmdb_id) v.tmdb_id, legacy.id " +
+            "FROM (VALUES ";
+    private static final String ADOPT_ROW = "(?, ?, ?)";
+    private static final String ADOPT_SUFFIX =
+            ") AS v (tmdb_id, title, release_date) " +
+            "JOIN movies legacy ON legacy.tmdb_id IS NULL " +
+            "AND legacy.title = v.title AND legacy.release_date = v.release_date " +
+            "WHERE NOT EXISTS (SELECT 1 FROM movies t WHERE t.tmdb_id = v.tmdb_id) " +
+            "ORDER BY v.tmdb_id, legacy.id) c " +
+            "WHERE m.id = c.id AND m.tmdb_id IS NULL";
+
+    // previous видит строки до вставки: все части WITH выполняются на одном снимке
+    private static final String UPSERT_BEFORE =
+            "WITH previous AS (SELECT tmdb_id, poster FROM movies WHERE tmdb_id = ANY (?::bigint[])), " +
+            "upserted AS (";
+    private static final String UPSERT_INSERT =
+            "INSERT INTO movies (tmdb_id, title, description, release_date, poster, genre_ids) VALUES ";
+    private static final String UPSERT_CONFLICT =
+            " ON CONFLICT (tmdb_id) DO UPDATE SET title = EXCLUDED.title, description = EXCLUDED.description, " +
+            "release_date = EXCLUDED.release_date, poster = EXCLUDED.poster, genre_ids = EXCLUDED.genre_ids " +
+            "WHERE (movies.title, movies.description, movies.release_date, movies.poster, movies.genre_ids) " +
+            "IS DISTINCT FROM " +
+            "(EXCLUDED.title, EXCLUDED.description, EXCLUDED.release_date, EXCLUDED.poster, EXCLUDED.genre_ids) " +
+            "RETURNING id, tmdb_id, poster)";
+    // у изменённого фильма сменился постер — скачанные варианты старой картинки больше не подходят
+    private static final String UPSERT_RESULT =
+            " SELECT u.id, u.tmdb_id, " +
+            "(p.tmdb_id IS NOT NULL AND p.poster IS DISTINCT FROM u.poster) AS poster_changed " +
+            "FROM upserted u LEFT JOIN previous p ON p.tmdb_id = u.tmdb_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> upsertAll(List<Movie> movies) {
+        // одна команда ON CONFLICT не может изменить строку дважды, оставляем последнюю версию фильма;
+        // пачки идут по возрастанию tmdb_id, поэтому параллельные страницы CatalogBootstrap блокируют
+        // общие строки в одном порядке и не ждут друг друга по кругу
+        Map<Long, Movie> byTmdbId = new TreeMap<>();
+        for (Movie movie : movies) {
+            if (movie.getTmdbId() == null) {
+                log.warn("Skipping movie '{}' without TMDB id", movie.getTitle());
+                continue;
+            }
+            byTmdbId.put(movie.getTmdbId(), movie);
+        }
+        List<Movie> unique = new ArrayList<>(byTmdbId.values());
+
+        List<Long> changedIds = new ArrayList<>();
+        for (int from = 0; from < unique.size(); from += BATCH_SIZE) {
+            List<Movie> batch = unique.subList(from, Math.min(from + BATCH_SIZE, unique.size()));
+            adoptBatch(batch);
+            List<Long> posterChanged = new ArrayList<>();
+            Map<Long, Long> idsByTmdbId = upsertBatch(batch, posterChanged);
+            replaceGenres(batch, idsByTmdbId);
+            deletePosterVariants(posterChanged);
+            changedIds.addAll(idsByTmdbId.values());
+        }
+        log.debug("Upserted {} movies, {} inserted or changed", unique.size(), changedIds.size());
+        return changedIds;
+    }
+
+    // строки без tmdb_id, совпавшие по названию и дате выхода, получают tmdb_id и дальше обновляются upsert
+    private void adoptBatch(List<Movie> batch) {
+        List<Movie> dated = batch.stream()
+                .filter(movie -> movie.getTitle() != null && movie.getRelease_date() != null)
+                .toList();
+        if (dated.isEmpty()) {
+            return;
+        }
+        String sql = ADOPT_PREFIX
+                + String.join(", ", Collections.nCopies(dated.size(), ADOPT_ROW))
+                + ADOPT_SUFFIX;
+        Object[] args = new Object[dated.size() * ADOPT_COLUMNS];
+        int[] types = new int[dated.size() * ADOPT_COLUMNS];
+        int i = 0;
+        for (Movie movie : dated) {
+            System.arraycopy(ADOPT_ROW_TYPES, 0, types, i, ADOPT_COLUMNS);
+            args[i++] = movie.getTmdbId();
+            args[i++] = movie.getTitle();
+            args[i++] = new Timestamp(movie.getRelease_date().getTime());
+        }
+        int adopted = jdbcTemplate.update(sql, args, types);
+        if (adopted > 0) {
+            log.info("Assigned TMDB ids to {} movies saved before tmdb_id", adopted);
+        }
+    }
+
+    private Map<Long, Long> upsertBatch(List<Movie> batch, List<Long> posterChanged) {
+        String sql = UPSERT_BEFORE
+                + UPSERT_INSERT
+                + String.join(", ", Collections.nCopies(batch.size(), ROW))
+                + UPSERT_CONFLICT
+                + UPSERT_RESULT;
+        Object[] args = new Object[1 + batch.size() * COLUMNS];
+        int[] types = new int[1 + batch.size() * COLUMNS];
+        args[0] = toArrayLiteral(batch.stream().mapToLong(Movie::getTmdbId).toArray());
+        types[0] = Types.VARCHAR;
+        int i = 1;
+        for (Movie movie : batch) {
+            System.arraycopy(ROW_TYPES, 0, types, i, COLUMNS);
+            args[i++] = movie.getTmdbId();
+            args[i++] = movie.getTitle();
+            args[i++] = movie.getDescription();
+            args[i++] = movie.getRelease_date() == null ? null : new Timestamp(movie.getRelease_date().getTime());
+            args[i++] = movie.getPoster();
+            args[i++] = toArrayLiteral(movie.getGenreIds());
+        }
+
+        Map<Long, Long> idsByTmdbId = new HashMap<>();
+        jdbcTemplate.query(sql, args, types, rs -> {
+            idsByTmdbId.put(rs.getLong("tmdb_id"), rs.getLong("id"));
+            if (rs.getBoolean("poster_changed")) {
+                posterChanged.add(rs.getLong("id"));
+            }
+        });
+        return idsByTmdbId;
+    }
+
+    // в той же транзакции, что и новый poster: после коммита PosterPrefetcher скачает постер заново
+    private void deletePosterVariants(List<Long> movieIds) {
+        if (movieIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM movie_poster_variants WHERE movie_id = ?",
+                movieIds.stream().map(id -> new Object[]{id}).toList());
+        log.debug("Poster changed for {} movies, downloaded variants removed", movieIds.size());
+    }
+
+    // жанры переписываются только у вставленных и изменённых фильмов
+    private void replaceGenres(List<Movie> batch, Map<Long, Long> idsByTmdbId) {
+        if (idsByTmdbId.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM movie_genres WHERE movie_id = ?",
+                idsByTmdbId.values().stream().map(id -> new Object[]{id}).toList());
+
+        List<Object[]> links = new ArrayList<>();
+        for (Movie movie : batch) {
+            Long movieId = idsByTmdbId.get(movie.getTmdbId());
+            if (movieId == null) {
+                continue;
+            }
+            for (Genre genre : movie.getGenres()) {
+                if (genre.getId() != null) {
+                    links.add(new Object[]{genre.getId(), movieId});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO movie_genres (genre_id, movie_id) VALUES (?, ?)", links);
+    }
+
+    private static String toArrayLiteral(long[] ids) {
+        StringJoiner literal = new StringJoiner(",", "{", "}");
+        if (ids != null) {
+            for (long id : ids) {
+                literal.add(Long.toString(id));
+            }
+        }
+        return literal.toString();
+    }
+}
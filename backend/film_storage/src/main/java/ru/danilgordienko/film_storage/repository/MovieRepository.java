@@ -1,24 +1,128 @@
 package ru.danilgordienko.film_storage.repository;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.danilgordienko.film_storage.model.dto.IdRangeView;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieExportView;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieGenreView;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MoviePosterView;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieRatingView;
 import ru.danilgordienko.film_storage.model.entity.Movie;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface MovieRepository extends JpaRepository<Movie, Long> {
+public interface MovieRepository extends JpaRepository<Movie, Long>, MovieBulkRepository {
 
     @EntityGraph(attributePaths = {"genres", "ratings"})
     Optional<Movie> findById(Long id);
 
-    @EntityGraph(attributePaths = {"genres", "ratings"})
-    List<Movie> findAll();
+    // первая фаза пагинации: только id фильмов страницы, limit/offset выполняются в бд
+    @Query(value = "select m.id from Movie m",
+            countQuery = "select count(m) from Movie m")
+    Page<Long> findPageIds(Pageable pageable);
 
-    @EntityGraph(attributePaths = {"genres", "ratings"})
-    Page<Movie> findAll(Pageable pageable);
+    // атомарно меняет счётчики оценок фильма; countDelta = 1 при добавлении оценки, -1 при удалении
+    @Modifying
+    @Query(value = "UPDATE movies SET rating_count = rating_count + :countDelta, " +
+            "rating_sum = rating_sum + :countDelta * :score, " +
+            "rating_histogram[:score] = rating_histogram[:score] + :countDelta " +
+            "WHERE id = :movieId", nativeQuery = true)
+    int applyRatingDelta(@Param("movieId") Long movieId,
+                         @Param("score") int score,
+                         @Param("countDelta") int countDelta);
+
+    // новая внешняя версия документов фильмов для Elasticsearch, вызывается в транзакции изменения
+    @Modifying
+    @Query(value = "UPDATE movies SET search_version = nextval('search_version_seq') WHERE id IN (:ids)",
+            nativeQuery = true)
+    int bumpSearchVersion(@Param("ids") Collection<Long> ids);
+
+    @Query("select m.id as movieId, m.ratingCount as ratingCount, m.ratingSum as ratingSum " +
+            "from Movie m where m.id = :id")
+    Optional<MovieRatingView> findRatingById(@Param("id") Long id);
+
+    // курсор по каталогу для выгрузки: строки читаются из бд порциями по fetch size,
+    // вызывать только внутри транзакции и закрывать поток
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select m.id as movieId, m.title as title, m.release_date as releaseDate, m.poster as poster, " +
+            "m.ratingCount as ratingCount, m.ratingSum as ratingSum " +
+            "from Movie m where m.id > :afterId order by m.id")
+    Stream<MovieExportView> streamForExport(@Param("afterId") long afterId);
+
+    @Query("select m.id as movieId, g.name as name from Movie m join m.genres g where m.id in :ids")
+    List<MovieGenreView> findGenreNamesByMovieIds(@Param("ids") Collection<Long> ids);
+
+    // хеш скачанного постера нужного размера, NULL пока этот размер не скачан или если его нет в TMDB;
+    // отметка об отсутствии учитывается, только если поставлена после missingSince
+    @Query(value = "SELECT m.id AS \"movieId\", m.poster AS poster, v.poster_hash AS \"posterHash\", " +
+            "(v.poster_hash IS NULL AND v.missing_at > :missingSince) AS \"posterMissing\" " +
+            "FROM movies m LEFT JOIN movie_poster_variants v ON v.movie_id = m.id AND v.size = :size " +
+            "WHERE m.id = :id", nativeQuery = true)
+    Optional<MoviePosterView> findPosterById(@Param("id") Long id, @Param("size") String size,
+                                             @Param("missingSince") LocalDateTime missingSince);
+
+    // запись только если постер фильма всё ещё poster: загрузка, начатая до смены постера, ничего не пишет
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO movie_poster_variants (movie_id, size, poster_hash) " +
+            "SELECT m.id, :size, :hash FROM movies m WHERE m.id = :id AND m.poster = :poster " +
+            "ON CONFLICT (movie_id, size) DO UPDATE SET poster_hash = EXCLUDED.poster_hash, missing_at = NULL",
+            nativeQuery = true)
+    int savePosterVariant(@Param("id") Long id, @Param("poster") String poster,
+                          @Param("size") String size, @Param("hash") String hash);
+
+    // отметка, что у TMDB нет постера этого размера; повторный 404 продлевает её,
+    // скачанный вариант не перезаписывается
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO movie_poster_variants (movie_id, size, poster_hash, missing_at) " +
+            "SELECT m.id, :size, NULL, now() FROM movies m WHERE m.id = :id AND m.poster = :poster " +
+            "ON CONFLICT (movie_id, size) DO UPDATE SET missing_at = EXCLUDED.missing_at " +
+            "WHERE movie_poster_variants.poster_hash IS NULL", nativeQuery = true)
+    int savePosterMissing(@Param("id") Long id, @Param("poster") String poster, @Param("size") String size);
+
+    // фильмы с постером в TMDB, у которых ещё не скачан размер size и нет отметки об его отсутствии
+    // новее missingSince; обход по возрастанию id
+    @Query(value = "SELECT m.id FROM movies m WHERE m.poster IS NOT NULL AND m.id > :afterId " +
+            "AND NOT EXISTS (SELECT 1 FROM movie_poster_variants v WHERE v.movie_id = m.id AND v.size = :size " +
+            "AND (v.poster_hash IS NOT NULL OR v.missing_at > :missingSince)) " +
+            "ORDER BY m.id LIMIT :limit", nativeQuery = true)
+    List<Long> findIdsWithoutPosterVariant(@Param("afterId") long afterId,
+                                           @Param("size") String size,
+                                           @Param("missingSince") LocalDateTime missingSince,
+                                           @Param("limit") int limit);
+
+    @Query(value = "SELECT count(*) FROM movies m WHERE m.poster IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM movie_poster_variants v WHERE v.movie_id = m.id AND v.size = :size " +
+            "AND (v.poster_hash IS NOT NULL OR v.missing_at > :missingSince))",
+            nativeQuery = true)
+    long countWithoutPosterVariant(@Param("size") String size,
+                                   @Param("missingSince") LocalDateTime missingSince);
+
+    @Query("select min(m.id) as minId, max(m.id) as maxId from Movie m")
+    IdRangeView findIdRange();
+
+    // keyset-страница фильмов с id в (afterId, toId] для перестроения индекса, без жанров и оценок
+    @Query("select m from Movie m where m.id > :afterId and m.id <= :toId order by m.id")
+    List<Movie> findPageInRange(@Param("afterId") long afterId, @Param("toId") long toId, Pageable pageable);
 }
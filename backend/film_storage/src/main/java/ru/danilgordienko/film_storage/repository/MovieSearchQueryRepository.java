@@ -0,0 +1,38 @@
+package ru.danilgordienko.film_storage.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import ru.danilgordienko.film_storage.model.dto.MovieSearchCriteria;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+
+import java.util.List;
+
+// запросы к индексу movies, которые не выражаются производными методами
+public interface MovieSearchQueryRepository {
+
+    String GENRES_AGGREGATION = "genres";
+    String YEARS_AGGREGATION = "years";
+
+    /**
+     * Поиск по названию: совпадение слов (с учётом словоформ) или их начала.
+     * Заменяет findByTitleContaining, который превращался в wildcard-запрос *query*.
+     * Страница по номеру, только первые страницы (см. SearchAfterPager).
+     */
+    CursorPage<MovieDocument> matchTitle(String query, int page, int size);
+
+    // следующая страница того же поиска по cursor из предыдущего ответа
+    CursorPage<MovieDocument> matchTitleAfter(String query, String cursor, int size);
+
+    /**
+     * Подсказки по началу названия: последнее слово запроса считается недописанным.
+     * Из документов загружаются только id, title и release_date.
+     */
+    List<MovieDocument> suggestTitles(String prefix, int limit);
+
+    /**
+     * Поиск с фильтрами по жанрам, году выхода и рейтингу.
+     * Вместе со страницей возвращает агрегации GENRES_AGGREGATION (terms по жанрам)
+     * и YEARS_AGGREGATION (date_histogram по годам) по всем подходящим фильмам.
+     */
+    SearchHits<MovieDocument> searchWithFacets(MovieSearchCriteria criteria, Pageable pageable);
+}
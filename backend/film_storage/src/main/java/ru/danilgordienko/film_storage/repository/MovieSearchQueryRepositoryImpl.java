@@ -0,0 +1,146 @@
+package ru.danilgordienko.film_storage.repository;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.CalendarInterval;
+import co.elastic.clients.elasticsearch._types.query_dsl.MultiMatchQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import ru.danilgordienko.film_storage.model.dto.MovieSearchCriteria;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запросы строятся через NativeQuery, а не @Query со строкой JSON,
+ * чтобы текст пользователя не подставлялся в тело запроса.
+ */
+@RequiredArgsConstructor
+public class MovieSearchQueryRepositoryImpl implements MovieSearchQueryRepository {
+
+    private static final String[] SUGGESTION_FIELDS = {"id", "title", "release_date"};
+    // жанров в справочнике TMDB около двадцати
+    private static final int MAX_GENRE_BUCKETS = 50;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final SearchAfterPager searchAfterPager;
+
+    @Override
+    public CursorPage<MovieDocument> matchTitle(String query, int page, int size) {
+        return searchAfterPager.page(titleQuery(query), MovieDocument.class, page, size);
+    }
+
+    @Override
+    public CursorPage<MovieDocument> matchTitleAfter(String query, String cursor, int size) {
+        return searchAfterPager.next(titleQuery(query), MovieDocument.class, cursor, size);
+    }
+
+    // по релевантности, id различает фильмы с одинаковым score
+    private static NativeQuery titleQuery(String query) {
+        return NativeQuery.builder()
+                .withQuery(q -> q.multiMatch(titleMatch(query)))
+                .withSort(s -> s.score(score -> score.order(SortOrder.Desc)))
+                .withSort(s -> s.field(f -> f.field("id").order(SortOrder.Asc)))
+                .build();
+    }
+
+    @Override
+    public List<MovieDocument> suggestTitles(String prefix, int limit) {
+        // bool_prefix по подполям search_as_you_type; общее число совпадений не считается
+        NativeQuery searchQuery = NativeQuery.builder()
+                .withQuery(q -> q.multiMatch(m -> m
+                        .query(prefix)
+                        .fields("title_suggest", "title_suggest._2gram", "title_suggest._3gram")
+                        .type(TextQueryType.BoolPrefix)
+                        .operator(Operator.And)))
+                .withSourceFilter(new FetchSourceFilterBuilder().withIncludes(SUGGESTION_FIELDS).build())
+                .withMaxResults(limit)
+                .withTrackTotalHits(false)
+                .build();
+        return elasticsearchOperations.search(searchQuery, MovieDocument.class)
+                .stream()
+                .map(SearchHit::getContent)
+                .toList();
+    }
+
+    @Override
+    public SearchHits<MovieDocument> searchWithFacets(MovieSearchCriteria criteria, Pageable pageable) {
+        // фильтры в filter context: не влияют на score и кэшируются Elasticsearch между запросами
+        Query query = Query.of(q -> q.bool(b -> {
+            if (criteria.getQuery() != null && !criteria.getQuery().isBlank()) {
+                b.must(m -> m.multiMatch(titleMatch(criteria.getQuery())));
+            }
+            return b.filter(filters(criteria));
+        }));
+        NativeQuery searchQuery = NativeQuery.builder()
+                .withQuery(query)
+                .withAggregation(GENRES_AGGREGATION, Aggregation.of(a -> a
+                        .terms(t -> t.field("genres").size(MAX_GENRE_BUCKETS))))
+                // по годам: в date_histogram нет интервала в десятилетие, годы складываются в сервисе
+                .withAggregation(YEARS_AGGREGATION, Aggregation.of(a -> a
+                        .dateHistogram(h -> h
+                                .field("release_date")
+                                .calendarInterval(CalendarInterval.Year)
+                                .format("yyyy")
+                                .minDocCount(1))))
+                .withPageable(pageable)
+                .build();
+        return elasticsearchOperations.search(searchQuery, MovieDocument.class);
+    }
+
+    // most_fields: полное совпадение слова набирает очки и в title, и в title.prefix
+    private static MultiMatchQuery titleMatch(String text) {
+        return MultiMatchQuery.of(m -> m
+                .query(text)
+                .fields("title^2", "title.prefix")
+                .type(TextQueryType.MostFields)
+                .operator(Operator.And));
+    }
+
+    private static List<Query> filters(MovieSearchCriteria criteria) {
+        List<Query> filters = new ArrayList<>();
+        if (criteria.getGenres() != null && !criteria.getGenres().isEmpty()) {
+            List<FieldValue> genres = criteria.getGenres().stream()
+                    .map(FieldValue::of)
+                    .toList();
+            filters.add(Query.of(q -> q.terms(t -> t
+                    .field("genres")
+                    .terms(v -> v.value(genres)))));
+        }
+        if (criteria.getYearFrom() != null || criteria.getYearTo() != null) {
+            filters.add(Query.of(q -> q.range(r -> r.date(d -> {
+                d.field("release_date");
+                if (criteria.getYearFrom() != null) {
+                    d.gte(criteria.getYearFrom() + "-01-01");
+                }
+                if (criteria.getYearTo() != null) {
+                    d.lt((criteria.getYearTo() + 1) + "-01-01");
+                }
+                return d;
+            }))));
+        }
+        if (criteria.getRatingFrom() != null || criteria.getRatingTo() != null) {
+            filters.add(Query.of(q -> q.range(r -> r.number(n -> {
+                n.field("averageRating");
+                if (criteria.getRatingFrom() != null) {
+                    n.gte(criteria.getRatingFrom());
+                }
+                if (criteria.getRatingTo() != null) {
+                    n.lte(criteria.getRatingTo());
+                }
+                return n;
+            }))));
+        }
+        return filters;
+    }
+}
@@ -1,15 +1,33 @@
 package ru.danilgordienko.film_storage.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.danilgordienko.film_storage.model.entity.RefreshToken;
 import ru.danilgordienko.film_storage.model.entity.User;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
 
     void deleteAllByUser(User user);
-}
\ No newline at end of file
+
+    List<RefreshToken> findByUser(User user);
+
+    // удаляет одну пачку просроченных токенов; строки, занятые другими транзакциями, пропускаются
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN (" +
+            "SELECT id FROM refresh_tokens WHERE expires_at < :now " +
+            "LIMIT :batchSize FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int deleteExpiredBatch(LocalDateTime now, int batchSize);
+
+    @Query(value = "SELECT pg_total_relation_size('refresh_tokens')", nativeQuery = true)
+    long tableSizeBytes();
+}
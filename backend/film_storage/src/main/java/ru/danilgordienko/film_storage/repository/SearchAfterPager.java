@@ -0,0 +1,185 @@
+package ru.danilgordienko.film_storage.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Постраничный поиск в Elasticsearch без from/size на глубоких страницах.
+ *
+ * Первые max-pages страниц отдаются по номеру через from/size, как раньше.
+ * Дальше клиент передаёт cursor из ответа: на первом переходе открывается point in time (PIT),
+ * и следующие страницы читаются через search_after от последнего документа предыдущей
+ * (с последней страницы по номеру — сразу через search_after, без смещения),
+ * поэтому стоимость страницы не зависит от её номера и не упирается в index.max_result_window.
+ * PIT держит снимок индекса, страницы не сдвигаются от параллельной индексации;
+ * он продлевается каждым запросом на keep-alive и закрывается на последней странице.
+ *
+ * Запрос должен сортировать с уникальным полем в конце, иначе страницы не однозначны.
+ * Курсор хранит хеш индекса, запроса и сортировки и принимается только тем же поиском.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchAfterPager {
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.search.cursor.keep-alive:2m}")
+    private Duration keepAlive;
+
+    @Value("${app.search.page-mode.max-pages:50}")
+    private int maxPages;
+
+    // страница по номеру; cursor в ответе продолжает с page + 1
+    public <T> CursorPage<T> page(NativeQuery query, Class<T> type, int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        if (page >= maxPages) {
+            throw new IllegalArgumentException("Page " + page + " is too deep, continue with the cursor from page "
+                    + (maxPages - 1));
+        }
+        String search = fingerprint(query, type);
+        query.setPageable(PageRequest.of(page, size));
+        SearchHits<T> hits = elasticsearchOperations.search(query, type);
+        if (!hasNext(hits, page, size)) {
+            return toPage(hits, page, null);
+        }
+        // после последней страницы по номеру смещение уже за max-pages: следующая читается через search_after
+        List<Object> after = page + 1 < maxPages ? null : lastSortValues(hits);
+        return toPage(hits, page, encode(new Cursor(search, null, after, page + 1)));
+    }
+
+    public <T> CursorPage<T> next(NativeQuery query, Class<T> type, String cursor, int size) {
+        Cursor position = decode(cursor);
+        if (!fingerprint(query, type).equals(position.search())) {
+            throw new IllegalArgumentException("Search cursor belongs to another search");
+        }
+        // курсор без search_after выдаёт только page(), и смещение в нём не глубже max-pages страниц
+        if (position.after() == null && position.page() >= maxPages) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+        String pit = position.pit() != null
+                ? position.pit()
+                : elasticsearchOperations.openPointInTime(elasticsearchOperations.getIndexCoordinatesFor(type),
+                        keepAlive, false);
+        query.setPointInTime(new Query.PointInTime(pit, keepAlive));
+        if (position.after() == null) {
+            // первый переход после страниц по номеру: смещение меньше max-pages страниц
+            query.setPageable(PageRequest.of(position.page(), size));
+        } else {
+            query.setPageable(PageRequest.of(0, size));
+            query.setSearchAfter(position.after());
+        }
+
+        SearchHits<T> hits;
+        try {
+            hits = elasticsearchOperations.search(query, type);
+        } catch (UncategorizedElasticsearchException e) {
+            if (e.getStatusCode() != null && e.getStatusCode() == 404) {
+                // PIT закрыт или истёк keep-alive — поиск начинается заново с первой страницы
+                throw new IllegalArgumentException("Search cursor has expired", e);
+            }
+            throw e;
+        }
+
+        // Elasticsearch может вернуть новый id PIT, следующий запрос должен идти с ним
+        String nextPit = hits.getPointInTimeId() != null ? hits.getPointInTimeId() : pit;
+        if (!hasNext(hits, position.page(), size)) {
+            close(nextPit);
+            return toPage(hits, position.page(), null);
+        }
+        return toPage(hits, position.page(),
+                encode(new Cursor(position.search(), nextPit, lastSortValues(hits), position.page() + 1)));
+    }
+
+    private static List<Object> lastSortValues(SearchHits<?> hits) {
+        return hits.getSearchHit(hits.getSearchHits().size() - 1).getSortValues();
+    }
+
+    private static boolean hasNext(SearchHits<?> hits, int page, int size) {
+        if (hits.getSearchHits().size() < size) {
+            return false;
+        }
+        // больше 10000 совпадений Elasticsearch не досчитывает, total — нижняя граница
+        return hits.getTotalHitsRelation() == TotalHitsRelation.GREATER_THAN_OR_EQUAL_TO
+                || (long) (page + 1) * size < hits.getTotalHits();
+    }
+
+    private static <T> CursorPage<T> toPage(SearchHits<T> hits, int page, String cursor) {
+        List<T> content = hits.getSearchHits().stream()
+                .map(SearchHit::getContent)
+                .toList();
+        return new CursorPage<>(content, page, hits.getTotalHits(), cursor);
+    }
+
+    private void close(String pit) {
+        try {
+            elasticsearchOperations.closePointInTime(pit);
+        } catch (RuntimeException e) {
+            // незакрытый PIT освободится сам через keep-alive
+            log.warn("Failed to close point in time: {}", e.getMessage());
+        }
+    }
+
+    // хеш индекса, запроса (вместе с фильтрами) и сортировки; вызывается до установки PIT и search_after
+    private String fingerprint(NativeQuery query, Class<?> type) {
+        String search = elasticsearchOperations.getIndexCoordinatesFor(type).getIndexName()
+                + "\n" + query.getQuery()
+                + "\n" + query.getSortOptions()
+                + "\n" + query.getSort();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(search.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String encode(Cursor cursor) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode search cursor", e);
+        }
+    }
+
+    private Cursor decode(String cursor) {
+        Cursor decoded;
+        try {
+            decoded = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), Cursor.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+        if (decoded.search() == null || decoded.page() < 0) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+        return decoded;
+    }
+
+    // search — хеш поиска, чтобы курсор одного поиска не подставили в другой; after — sort values последнего документа
+    record Cursor(String search, String pit, List<Object> after, int page) {
+    }
+}
@@ -0,0 +1,28 @@
+package ru.danilgordienko.film_storage.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.danilgordienko.film_storage.model.entity.SearchOutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface SearchOutboxRepository extends JpaRepository<SearchOutboxEvent, Long> {
+
+    // пачка событий, готовых к отправке, в порядке записи.
+    // Строки блокируются до конца транзакции, SKIP LOCKED позволяет нескольким экземплярам
+    // разбирать outbox параллельно, не получая одни и те же события
+    @Query(value = "SELECT * FROM search_outbox WHERE next_attempt_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<SearchOutboxEvent> claimBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // версия для события DELETE: строки сущности уже нет, а номер больше всех выданных ей раньше
+    @Query(value = "SELECT nextval('search_version_seq')", nativeQuery = true)
+    long nextSearchVersion();
+
+    // время записи самого старого неотправленного события, для метрики отставания
+    @Query(value = "SELECT created_at FROM search_outbox ORDER BY id LIMIT 1", nativeQuery = true)
+    Optional<LocalDateTime> findOldestCreatedAt();
+}
@@ -4,9 +4,17 @@ package ru.danilgordienko.film_storage.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.danilgordienko.film_storage.model.dto.IdRangeView;
+import ru.danilgordienko.film_storage.model.dto.UsersDto.UserPrincipalView;
 import ru.danilgordienko.film_storage.model.entity.User;
+import ru.danilgordienko.film_storage.model.entity.UserDocument;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +23,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Boolean existsByUsername(String username);
     Page<User> findAll(Pageable pageable);
+
+    // только поля, нужные для UserDetailsImpl, без аватара
+    @Query("select u.id as id, u.email as email, u.username as username, r as role " +
+            "from User u left join u.roles r where u.email = :email")
+    List<UserPrincipalView> findPrincipalByEmail(String email);
+
+    // новая внешняя версия документов пользователей для Elasticsearch, вызывается в транзакции изменения
+    @Modifying
+    @Query(value = "UPDATE users SET search_version = nextval('search_version_seq') WHERE id IN (:ids)",
+            nativeQuery = true)
+    int bumpSearchVersion(@Param("ids") Collection<Long> ids);
+
+    @Query("select min(u.id) as minId, max(u.id) as maxId from User u")
+    IdRangeView findIdRange();
+
+    // keyset-страница документов пользователей с id в (afterId, toId], аватары не читаются
+    @Query("select new ru.danilgordienko.film_storage.model.entity.UserDocument(u.id, u.username) " +
+            "from User u where u.id > :afterId and u.id <= :toId order by u.id")
+    List<UserDocument> findDocumentsInRange(@Param("afterId") long afterId,
+                                            @Param("toId") long toId,
+                                            Pageable pageable);
 }
@@ -0,0 +1,17 @@
+package ru.danilgordienko.film_storage.repository;
+
+import ru.danilgordienko.film_storage.model.entity.UserDocument;
+
+// запросы к индексу users, которые не выражаются производными методами
+public interface UserSearchQueryRepository {
+
+    /**
+     * Поиск по имени пользователя: совпадение слов имени или их начала.
+     * Заменяет searchByUsernameContaining, который превращался в wildcard-запрос *query*.
+     * Страница по номеру, только первые страницы (см. SearchAfterPager).
+     */
+    CursorPage<UserDocument> matchUsername(String query, int page, int size);
+
+    // следующая страница того же поиска по cursor из предыдущего ответа
+    CursorPage<UserDocument> matchUsernameAfter(String query, String cursor, int size);
+}
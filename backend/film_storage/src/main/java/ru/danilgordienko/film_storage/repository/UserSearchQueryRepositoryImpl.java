@@ -0,0 +1,37 @@
+package ru.danilgordienko.film_storage.repository;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import ru.danilgordienko.film_storage.model.entity.UserDocument;
+
+@RequiredArgsConstructor
+public class UserSearchQueryRepositoryImpl implements UserSearchQueryRepository {
+
+    private final SearchAfterPager searchAfterPager;
+
+    @Override
+    public CursorPage<UserDocument> matchUsername(String query, int page, int size) {
+        return searchAfterPager.page(usernameQuery(query), UserDocument.class, page, size);
+    }
+
+    @Override
+    public CursorPage<UserDocument> matchUsernameAfter(String query, String cursor, int size) {
+        return searchAfterPager.next(usernameQuery(query), UserDocument.class, cursor, size);
+    }
+
+    // по релевантности, id различает пользователей с одинаковым score
+    private static NativeQuery usernameQuery(String query) {
+        return NativeQuery.builder()
+                .withQuery(q -> q.multiMatch(m -> m
+                        .query(query)
+                        .fields("username^2", "username.prefix")
+                        .type(TextQueryType.MostFields)
+                        .operator(Operator.And)))
+                .withSort(s -> s.score(score -> score.order(SortOrder.Desc)))
+                .withSort(s -> s.field(f -> f.field("id").order(SortOrder.Asc)))
+                .build();
+    }
+}
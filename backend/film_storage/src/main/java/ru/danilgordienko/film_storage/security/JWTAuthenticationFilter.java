@@ -13,7 +13,6 @@ import org.apache.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.filter.OncePerRequestFilter;
 import ru.danilgordienko.film_storage.exception.TokenAlreadyRevokedException;
 import ru.danilgordienko.film_storage.exception.TokenExpiredException;
@@ -26,11 +25,11 @@ import java.security.SignatureException;
 public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
     private final JWTCore jwtCore;
-    private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
 
-    public JWTAuthenticationFilter(JWTCore jwtCore, UserDetailsService userDetailsService) {
+    public JWTAuthenticationFilter(JWTCore jwtCore, PrincipalCache principalCache) {
         this.jwtCore = jwtCore;
-        this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
 
     /**
@@ -49,17 +48,15 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
             // Получаем JWT-токен из запроса
             String token = getTokenFromRequest(request);
             if (token != null) {
-                String type = jwtCore.getTypeFromToken(token);
-                if (type.equalsIgnoreCase("access"))
-                    jwtCore.validateAccessToken(token);
-                else
-                    jwtCore.validateRefreshToken(token);
+                // Подпись проверяется один раз, дальше работаем с готовыми claims
+                VerifiedToken verifiedToken = jwtCore.verifyToken(token);
+                jwtCore.validateToken(verifiedToken);
                 // Извлекаем имя пользователя из токена
-                String email = jwtCore.getEmailFromToken(token);
+                String email = verifiedToken.email();
                 log.debug("Received token for user: {}", email);
 
-                // Загружаем данные пользователя по имени
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+                // Берём данные пользователя из кэша, в бд идём только при промахе
+                UserDetails userDetails = principalCache.get(email);
 
                 // Создаем объект аутентификации и устанавливаем его в SecurityContext
                 UsernamePasswordAuthenticationToken authentication =
@@ -2,9 +2,11 @@ package ru.danilgordienko.film_storage.security;
 
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,10 +22,15 @@ import ru.danilgordienko.film_storage.model.entity.RefreshToken;
 import ru.danilgordienko.film_storage.model.entity.User;
 import ru.danilgordienko.film_storage.repository.AccessTokenRepository;
 import ru.danilgordienko.film_storage.repository.RefreshTokenRepository;
+import ru.danilgordienko.film_storage.security.TokenStateStore.TokenState;
 
 import java.security.Key;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
@@ -42,10 +49,20 @@ public class JWTCore {
 
     private final RefreshTokenRepository refreshTokenRepository;
     private final AccessTokenRepository accessTokenRepository;
+    private final TokenStateStore tokenStateStore;
 
-    private Key getSigningKey() {
+    // ключ и парсер создаются один раз: декодирование секрета и сборка парсера
+    // не должны выполняться на каждый запрос
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void initSigningKey() {
         byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
+        signingKey = Keys.hmacShaKeyFor(keyBytes);
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     // генерирует access токен
@@ -64,6 +81,7 @@ public class JWTCore {
             UserDetailsImpl user = (UserDetailsImpl) userDetails;
 
             return Jwts.builder()
+                    .setId(UUID.randomUUID().toString())
                     .setSubject(user.getUsername())
                     .setIssuedAt(new Date())
                     .setExpiration(new Date(System.currentTimeMillis() + expiration))
@@ -73,7 +91,7 @@ public class JWTCore {
                             .map(Object::toString)
                             .toList())
                     .claim("token_type", tokenType)
-                    .signWith(getSigningKey())
+                    .signWith(signingKey)
                     .compact();
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -81,32 +99,82 @@ public class JWTCore {
     }
 
 
-    // проверки что refresh токен корректный
-    public void validateRefreshToken(String token) {
-        var storedToken = refreshTokenRepository.findByToken(token)
+    // проверяет подпись токена один раз и возвращает все нужные claims
+    @SuppressWarnings("unchecked")
+    public VerifiedToken verifyToken(String token) {
+        Claims claims = getClaimsFromToken(token);
+        return new VerifiedToken(
+                token,
+                claims.get("token_type", String.class),
+                claims.getSubject(),
+                claims.get("email", String.class),
+                claims.get("roles", List.class),
+                claims.getExpiration(),
+                claims.getId());
+    }
+
+    // проверки что уже проверенный токен есть в бд и не просрочен
+    public void validateToken(VerifiedToken token) {
+        if (token.isAccess())
+            validateAccessToken(token);
+        else
+            validateRefreshToken(token);
+    }
+
+    private void validateRefreshToken(VerifiedToken token) {
+        // состояние берётся из кэша, в бд идём только при промахе
+        String digest = TokenDigests.sha256(token.token());
+        var state = tokenStateStore.resolve(digest, timeToLive(token),
+                        () -> refreshTokenRepository.findByTokenHash(digest)
+                                .map(rt -> rt.isRevoked() ? TokenState.REVOKED : TokenState.ACTIVE))
                 .orElseThrow(() -> new TokenNotFoundException("Invalid refresh token"));
         // не просрочен
-        if (isTokenExpired(token)) {
+        if (token.isExpired()) {
             throw new TokenExpiredException("Refresh token is expired");
         }
         //не отозван
-        if (storedToken.isRevoked()) {
+        if (state == TokenState.REVOKED) {
             throw new TokenAlreadyRevokedException("Token already revoked");
         }
     }
 
-    // проверки что refresh токен корректный
-    public void validateAccessToken(String token) {
-        var storedToken = accessTokenRepository.findByToken(token)
+    private void validateAccessToken(VerifiedToken token) {
+        String digest = TokenDigests.sha256(token.token());
+        var state = tokenStateStore.resolve(digest, timeToLive(token),
+                        () -> accessTokenRepository.findByTokenHash(digest)
+                                .map(at -> TokenState.ACTIVE))
                 .orElseThrow(() -> new TokenNotFoundException("Invalid access token"));
         // не просрочен
-        if (isTokenExpired(token)) {
+        if (token.isExpired()) {
             throw new TokenExpiredException("Access token is expired");
         }
-//        //не отозван
-//        if (storedToken.isRevoked()) {
-//            throw new TokenAlreadyRevokedException("Token already revoked");
-//        }
+        // удалён при повторном входе
+        if (state == TokenState.REVOKED) {
+            throw new TokenAlreadyRevokedException("Token already revoked");
+        }
+    }
+
+    // время истечения токена в UTC, по нему чистятся старые записи
+    private LocalDateTime expiresAt(String token) {
+        return LocalDateTime.ofInstant(verifyToken(token).expiration().toInstant(), ZoneOffset.UTC);
+    }
+
+    // сколько ещё живёт токен
+    private Duration timeToLive(VerifiedToken token) {
+        if (token.expiration() == null) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(token.expiration().getTime() - System.currentTimeMillis());
+    }
+
+    // проверки что refresh токен корректный
+    public void validateRefreshToken(String token) {
+        validateRefreshToken(verifyToken(token));
+    }
+
+    // проверки что access токен корректный
+    public void validateAccessToken(String token) {
+        validateAccessToken(verifyToken(token));
     }
 
     // сохраняет refresh токен в бд
@@ -115,7 +183,8 @@ public class JWTCore {
         try {
             refreshTokenRepository.save(
                     RefreshToken.builder()
-                            .token(refreshToken)
+                            .tokenHash(TokenDigests.sha256(refreshToken))
+                            .expiresAt(expiresAt(refreshToken))
                             .user(user)
                             .build()
             );
@@ -131,7 +200,8 @@ public class JWTCore {
         try {
             accessTokenRepository.save(
                     AccessToken.builder()
-                            .token(accessToken)
+                            .tokenHash(TokenDigests.sha256(accessToken))
+                            .expiresAt(expiresAt(accessToken))
                             .user(user)
                             .build()
             );
@@ -144,9 +214,11 @@ public class JWTCore {
     // помечает refresh токен у пользователя как отозванный
     public void revokeRefreshToken(String token) {
         try {
-            refreshTokenRepository.findByToken(token).ifPresent(rt -> {
+            String digest = TokenDigests.sha256(token);
+            refreshTokenRepository.findByTokenHash(digest).ifPresent(rt -> {
                 rt.setRevoked(true);
                 refreshTokenRepository.save(rt);
+                tokenStateStore.revoke(digest, Duration.ofMillis(refreshExpiration));
             });
         } catch (DataAccessException e) {
             log.error("Database access error: {}", e.getMessage(), e);
@@ -170,7 +242,11 @@ public class JWTCore {
 
     public void deleteAllRefreshTokensByUser(User user){
         try {
+            var tokens = refreshTokenRepository.findByUser(user);
             refreshTokenRepository.deleteAllByUser(user);
+            // удалённые токены должны перестать работать и на других узлах
+            tokens.forEach(rt -> tokenStateStore.revoke(
+                    rt.getTokenHash(), Duration.ofMillis(refreshExpiration)));
         } catch (DataAccessException e) {
             log.error("Database access error: {}", e.getMessage(), e);
             throw new DatabaseConnectionException("Failed to connect to the database", e);
@@ -179,7 +255,10 @@ public class JWTCore {
 
     public void deleteAllAccessTokensByUser(User user){
         try {
+            var tokens = accessTokenRepository.findByUser(user);
             accessTokenRepository.deleteAllByUser(user);
+            tokens.forEach(at -> tokenStateStore.revoke(
+                    at.getTokenHash(), Duration.ofMillis(accessExpiration)));
         } catch (DataAccessException e) {
             log.error("Database access error: {}", e.getMessage(), e);
             throw new DatabaseConnectionException("Failed to connect to the database", e);
@@ -203,11 +282,7 @@ public class JWTCore {
     }
 
     private Claims getClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     // получение токена из заголовка
@@ -0,0 +1,128 @@
+package ru.danilgordienko.film_storage.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.danilgordienko.film_storage.model.dto.UsersDto.UserPrincipalView;
+import ru.danilgordienko.film_storage.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш principal'ов для JWT фильтра.
+ * Хранит облегчённый UserDetailsImpl (без аватара и пароля), ограничен по размеру и TTL.
+ * Сбрасывается при смене ролей, пароля, email и удалении пользователя;
+ * сброс рассылается остальным узлам через Redis pub/sub.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PrincipalCache implements MessageListener {
+
+    public static final String EVICTION_CHANNEL = "auth:principal-evictions";
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.security.principal-cache.ttl:60s}")
+    private Duration ttl;
+
+    @Value("${app.security.principal-cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, UserDetailsImpl> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+        Gauge.builder("auth.principal.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVICTION_CHANNEL));
+    }
+
+    // возвращает principal по email, при промахе загружает его из бд
+    public UserDetailsImpl get(String email) {
+        UserDetailsImpl principal = cache.get(email, this::load);
+        if (principal == null) {
+            log.warn("User '{}' not found", email);
+            throw new UsernameNotFoundException(email + " not found");
+        }
+        return principal;
+    }
+
+    // сбрасывает principal на этом и на остальных узлах.
+    // В транзакции сброс выполняется после коммита: иначе параллельный запрос успеет
+    // перечитать из бд ещё старые роли или удалённого пользователя и закэшировать их на весь ttl
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(email);
+                }
+            });
+        } else {
+            evictNow(email);
+        }
+    }
+
+    private void evictNow(String email) {
+        cache.invalidate(email);
+        try {
+            redisTemplate.convertAndSend(EVICTION_CHANNEL, email);
+        } catch (DataAccessException e) {
+            log.warn("Failed to publish principal eviction, other nodes will see it after {}: {}",
+                    ttl, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        cache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private UserDetailsImpl load(String email) {
+        log.debug("Loading principal for user: {}", email);
+        List<UserPrincipalView> rows = userRepository.findPrincipalByEmail(email);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        UserPrincipalView user = rows.getFirst();
+        Set<String> roles = rows.stream()
+                .map(UserPrincipalView::getRole)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableSet());
+        return new UserDetailsImpl(user.getId(), user.getEmail(), user.getUsername(), null, roles);
+    }
+}
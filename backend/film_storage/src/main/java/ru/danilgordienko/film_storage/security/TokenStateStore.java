@@ -0,0 +1,138 @@
+package ru.danilgordienko.film_storage.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Хранилище состояния токенов (активен / отозван).
+ * Порядок проверки: локальный кэш -> Redis -> Postgres (источник истины).
+ * Ключом везде служит SHA-256 отпечаток токена, а не сам JWT.
+ *
+ * Отзыв записывается в Redis и рассылается всем узлам через pub/sub.
+ * Если сообщение потерялось, локальная запись всё равно истечёт через local-ttl,
+ * поэтому отзыв виден на всех узлах не позже чем через это время.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenStateStore implements MessageListener {
+
+    public static final String REVOCATION_CHANNEL = "auth:token-revocations";
+    private static final String KEY_PREFIX = "auth:token:";
+
+    public enum TokenState {
+        ACTIVE, REVOKED
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.security.token-state.local-ttl:30s}")
+    private Duration localTtl;
+
+    @Value("${app.security.token-state.local-max-size:100000}")
+    private long localMaxSize;
+
+    private Cache<String, TokenState> localCache;
+
+    @PostConstruct
+    void init() {
+        localCache = Caffeine.newBuilder()
+                .expireAfterWrite(localTtl)
+                .maximumSize(localMaxSize)
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOCATION_CHANNEL));
+    }
+
+    /**
+     * Возвращает состояние токена. Если его нет ни в локальном кэше, ни в Redis,
+     * вызывается dbLoader; пустой результат означает, что токена нет в бд.
+     *
+     * @param digest   отпечаток токена
+     * @param ttl      сколько ещё живёт токен (ограничивает TTL записи в Redis)
+     * @param dbLoader загрузка состояния из Postgres
+     */
+    public Optional<TokenState> resolve(String digest, Duration ttl, Supplier<Optional<TokenState>> dbLoader) {
+        TokenState local = localCache.getIfPresent(digest);
+        if (local != null) {
+            return Optional.of(local);
+        }
+
+        TokenState shared = readShared(digest);
+        if (shared != null) {
+            localCache.put(digest, shared);
+            return Optional.of(shared);
+        }
+
+        Optional<TokenState> stored = dbLoader.get();
+        stored.ifPresent(state -> {
+            // setIfAbsent: не перезаписываем отзыв, сделанный другим узлом, пока мы читали бд
+            writeShared(digest, state, ttl, state == TokenState.ACTIVE);
+            localCache.put(digest, state);
+        });
+        return stored;
+    }
+
+    /**
+     * Помечает токен отозванным на этом узле, в Redis и рассылает отзыв остальным узлам.
+     */
+    public void revoke(String digest, Duration ttl) {
+        localCache.put(digest, TokenState.REVOKED);
+        writeShared(digest, TokenState.REVOKED, ttl, false);
+        try {
+            redisTemplate.convertAndSend(REVOCATION_CHANNEL, digest);
+        } catch (DataAccessException e) {
+            log.warn("Failed to publish token revocation, other nodes will see it after {}: {}",
+                    localTtl, e.getMessage());
+        }
+    }
+
+    // сообщение от другого узла об отзыве токена
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String digest = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.debug("Received token revocation {}", digest);
+        localCache.put(digest, TokenState.REVOKED);
+    }
+
+    private TokenState readShared(String digest) {
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + digest);
+            return value == null ? null : TokenState.valueOf(value);
+        } catch (DataAccessException e) {
+            log.warn("Redis is unavailable, falling back to database: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeShared(String digest, TokenState state, Duration ttl, boolean onlyIfAbsent) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+        try {
+            if (onlyIfAbsent) {
+                redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + digest, state.name(), ttl);
+            } else {
+                redisTemplate.opsForValue().set(KEY_PREFIX + digest, state.name(), ttl);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to write token state to Redis: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.danilgordienko.film_storage.security;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Результат однократной проверки подписи JWT-токена.
+ * Содержит все claims, которые нужны фильтру, чтобы не разбирать токен повторно.
+ */
+public record VerifiedToken(String token,
+                            String type,
+                            String subject,
+                            String email,
+                            List<String> roles,
+                            Date expiration,
+                            String jti) {
+
+    public VerifiedToken {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+        expiration = expiration == null ? null : new Date(expiration.getTime());
+    }
+
+    @Override
+    public Date expiration() {
+        return expiration == null ? null : new Date(expiration.getTime());
+    }
+
+    public boolean isAccess() {
+        return "access".equalsIgnoreCase(type);
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.getTime() < System.currentTimeMillis();
+    }
+}
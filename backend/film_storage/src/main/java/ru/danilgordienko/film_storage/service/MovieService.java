@@ -2,23 +2,30 @@ package ru.danilgordienko.film_storage.service;
 
 import org.springframework.stereotype.Service;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieDetailsDto;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieDto;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieListDto;
+import ru.danilgordienko.film_storage.model.dto.MovieFacetedSearchDto;
+import ru.danilgordienko.film_storage.model.dto.MovieSearchCriteria;
 import ru.danilgordienko.film_storage.model.dto.PageDto;
 import ru.danilgordienko.film_storage.MovieAPI.MovieApiClient;
 import ru.danilgordienko.film_storage.model.entity.Movie;
+import ru.danilgordienko.film_storage.model.enums.ExportFormat;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @Service
 public interface MovieService {
     List<MovieListDto> getAllMovies();
+    void exportMovies(long afterId, ExportFormat format, OutputStream out) throws IOException;
     PageDto getMoviesPage(int page);
     MovieDetailsDto getMovie(Long id);
     Movie getMovieById(Long id);
     List<MovieListDto> searchMoviesByTitle(String query);
-    PageDto searchMoviesPageByTitle(String query, int page);
-    byte[] getPoster(Long id);
-    void initPopularMovies();
+    PageDto searchMoviesPageByTitle(String query, int page, String cursor);
+    MovieFacetedSearchDto searchMoviesWithFacets(MovieSearchCriteria criteria, int page);
+    void saveMovies(List<MovieDto> movies);
     void populateMovies(MovieApiClient.MoviesReceivedEvent event);
     void deleteMovie(Long id);
     void addMovie(Long id);
@@ -0,0 +1,13 @@
+package ru.danilgordienko.film_storage.service;
+
+import org.springframework.stereotype.Service;
+import ru.danilgordienko.film_storage.model.enums.PosterSize;
+import ru.danilgordienko.film_storage.storage.PosterFile;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public interface PosterService {
+    CompletableFuture<Optional<PosterFile>> getPoster(Long movieId, PosterSize size);
+}
@@ -13,7 +13,7 @@ public interface UserService extends UserDetailsService {
 
     User getUserByUsername(String username);
     User getUserById(Long id);
-    PageDto<UserListDto> searchUserByUsername(String query, int page);
+    PageDto<UserListDto> searchUserByUsername(String query, int page, String cursor);
     void saveUser(User user);
     UserInfoDto getUserInfo(Long id);
     UserFriendsDto getUserFriends(Long id);
@@ -1,6 +1,5 @@
 package ru.danilgordienko.film_storage.service.impl;
 
-import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -13,18 +12,16 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
 import ru.danilgordienko.film_storage.model.dto.AuthResponse;
 import ru.danilgordienko.film_storage.model.dto.UsersDto.UserLoginDto;
 import ru.danilgordienko.film_storage.model.dto.UsersDto.UserRegistrationDTO;
-import ru.danilgordienko.film_storage.model.dto.mapping.UserMapping;
 import ru.danilgordienko.film_storage.exception.*;
 import ru.danilgordienko.film_storage.model.enums.RatingVisibility;
 import ru.danilgordienko.film_storage.model.enums.Role;
 import ru.danilgordienko.film_storage.model.entity.User;
 import ru.danilgordienko.film_storage.repository.UserRepository;
-import ru.danilgordienko.film_storage.repository.UserSearchRepository;
 import ru.danilgordienko.film_storage.security.JWTCore;
+import ru.danilgordienko.film_storage.security.PrincipalCache;
 import ru.danilgordienko.film_storage.security.UserDetailsImpl;
 import ru.danilgordienko.film_storage.service.AuthService;
 
@@ -40,9 +37,9 @@ public class AuthServiceImpl implements AuthService {
     private final AuthenticationManager authenticationManager;
     @Qualifier("userService")
     private final UserDetailsService userDetailsService;
-    private final UserSearchRepository  userSearchRepository;
-    private final UserMapping userMapping;
+    private final SearchOutbox searchOutbox;
     private final JWTCore jwtService;
+    private final PrincipalCache principalCache;
 
 
     // аунтификация пользователя по учетным данным
@@ -80,7 +77,7 @@ public class AuthServiceImpl implements AuthService {
                     .roles(Set.of(Role.USER.name()))
                     .build();
             userRepository.save(user);
-            userSearchRepository.save(userMapping.toUserDocument(user));
+            searchOutbox.indexUser(user.getId());
             // генерируем токены
             var accessToken = jwtService.generateAccessToken(UserDetailsImpl.build(user));
             var refreshToken = jwtService.generateRefreshToken(UserDetailsImpl.build(user));
@@ -91,9 +88,6 @@ public class AuthServiceImpl implements AuthService {
         } catch (DataAccessException e) {
             log.error("Database save error", e);
             throw new DatabaseConnectionException("Failed to save user in database", e);
-        } catch (ElasticsearchException | RestClientException e) {
-            log.error("Elasticsearch save error", e);
-            throw new ElasticsearchConnectionException("Failed to save user in Elasticsearch", e);
         } catch (Exception e) {
             log.error("User registration error", e);
             throw new UserRegistrationException("Unexpected error during user registration", e);
@@ -160,6 +154,8 @@ public class AuthServiceImpl implements AuthService {
             }
             user.getRoles().add(Role.ADMIN.name());
             userRepository.save(user);
+            // роли изменились, старый principal больше не актуален
+            principalCache.evict(user.getEmail());
         }  catch (DataAccessException e) {
             log.debug("Database connection error", e);
             throw new DatabaseConnectionException("Failed to connect to database", e);
@@ -0,0 +1,296 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danilgordienko.film_storage.MovieAPI.MovieApiClient;
+import ru.danilgordienko.film_storage.exception.CatalogBootstrapRunningException;
+import ru.danilgordienko.film_storage.model.dto.CatalogBootstrapStatusDto;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieDto;
+import ru.danilgordienko.film_storage.model.entity.CatalogBootstrapPage;
+import ru.danilgordienko.film_storage.model.entity.CatalogBootstrapRun;
+import ru.danilgordienko.film_storage.model.entity.Genre;
+import ru.danilgordienko.film_storage.repository.CatalogBootstrapPageRepository;
+import ru.danilgordienko.film_storage.repository.CatalogBootstrapRunRepository;
+import ru.danilgordienko.film_storage.repository.GenreRepository;
+import ru.danilgordienko.film_storage.service.MovieService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Первоначальная загрузка каталога из страниц популярных фильмов TMDB.
+ * Страницы запрашиваются параллельно (concurrency), каждая страница сохраняется в своей транзакции
+ * вместе с отметкой в catalog_bootstrap_pages, поэтому соединение с бд занято только на время записи,
+ * ошибка одной страницы не откатывает остальные, а после рестарта загрузка продолжается
+ * с несохранённых страниц незавершённого запуска. Неудачные попытки считаются по страницам:
+ * страница, не загруженная за maxPageAttempts запусков, пропускается, и запуск закрывается с ошибками.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogBootstrap {
+
+    // TMDB отдаёт не больше 500 страниц популярных фильмов
+    private static final int TMDB_MAX_PAGE = 500;
+
+    private final MovieApiClient movieApiClient;
+    private final MovieService movieService;
+    private final GenreRepository genreRepository;
+    private final GenreDictionary genreDictionary;
+    private final CatalogBootstrapRunRepository runRepository;
+    private final CatalogBootstrapPageRepository pageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.catalog.bootstrap.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.catalog.bootstrap.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    @Value("${app.catalog.bootstrap.max-page-attempts:3}")
+    private int maxPageAttempts;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "catalog-bootstrap");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExecutorService pageWorkers;
+
+    // прогресс текущего или последнего запуска
+    private volatile Progress progress;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        pageWorkers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "catalog-bootstrap-page-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        try {
+            runRepository.findFirstByFinishedAtIsNullOrderByIdDesc().ifPresent(run -> {
+                log.info("Resuming catalog bootstrap run {} (pages {}-{})",
+                        run.getId(), run.getFromPage(), run.getToPage());
+                launch(run);
+            });
+        } catch (DataAccessException e) {
+            log.error("Failed to resume catalog bootstrap: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Запускает загрузку страниц fromPage..toPage (не дальше 500-й, последней у TMDB),
+     * незавершённый предыдущий запуск при этом закрывается.
+     *
+     * @throws CatalogBootstrapRunningException если загрузка уже выполняется
+     */
+    public synchronized CatalogBootstrapStatusDto start(int fromPage, int toPage) {
+        if (fromPage < 1 || toPage < fromPage || toPage > TMDB_MAX_PAGE) {
+            throw new IllegalArgumentException("Invalid page range " + fromPage + "-" + toPage);
+        }
+        if (progress != null && progress.running) {
+            throw new CatalogBootstrapRunningException("Catalog bootstrap is already running");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        runRepository.finishUnfinished(now);
+        CatalogBootstrapRun run = runRepository.save(CatalogBootstrapRun.builder()
+                .fromPage(fromPage)
+                .toPage(toPage)
+                .startedAt(now)
+                .build());
+        launch(run);
+        return getStatus();
+    }
+
+    public CatalogBootstrapStatusDto getStatus() {
+        Progress current = progress;
+        if (current == null) {
+            return CatalogBootstrapStatusDto.builder().build();
+        }
+        return current.toDto();
+    }
+
+    private synchronized void launch(CatalogBootstrapRun run) {
+        Progress started = new Progress(run);
+        progress = started;
+        dispatcher.execute(() -> runBootstrap(started));
+    }
+
+    private void runBootstrap(Progress progress) {
+        CatalogBootstrapRun run = progress.run;
+        try {
+            importGenres();
+
+            Set<Integer> done = new HashSet<>(pageRepository.findPagesByRunId(run.getId()));
+            Set<Integer> exhausted = new HashSet<>(pageRepository.findExhaustedPages(run.getId(), maxPageAttempts));
+            List<Integer> pages = IntStream.rangeClosed(run.getFromPage(), run.getToPage())
+                    .filter(page -> !done.contains(page) && !exhausted.contains(page))
+                    .boxed()
+                    .toList();
+            progress.pagesDone.set(done.size());
+            log.info("Catalog bootstrap run {}: {} pages to load, {} already done, {} skipped after {} attempts",
+                    run.getId(), pages.size(), done.size(), exhausted.size(), maxPageAttempts);
+
+            CompletableFuture.allOf(pages.stream()
+                    .map(page -> CompletableFuture.runAsync(() -> importPage(progress, page), pageWorkers))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+
+            // запуск с ошибками остаётся незавершённым и продолжится после рестарта,
+            // пока у несохранённых страниц есть попытки
+            List<Integer> failed = pageRepository.findExhaustedPages(run.getId(), maxPageAttempts);
+            if (progress.pagesDone.get() + failed.size() == progress.pagesTotal) {
+                if (!failed.isEmpty()) {
+                    log.warn("Catalog bootstrap run {} closed with errors, pages not loaded: {}",
+                            run.getId(), failed.stream().sorted().toList());
+                }
+                progress.failedPages = failed.size();
+                runRepository.markFinished(run.getId(), LocalDateTime.now(), failed.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Catalog bootstrap run {} stopped: {}", run.getId(), e.getMessage(), e);
+            progress.recordError(e);
+        } finally {
+            progress.finish();
+            log.info("Catalog bootstrap run {} finished: {}", run.getId(), progress.toDto());
+        }
+    }
+
+    // жанры нужны до фильмов; уже сохранённые жанры не дублируются,
+    // после коммита справочник жанров заменяется новым снимком
+    private void importGenres() {
+        List<Genre> genres = movieApiClient.getGenres();
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Long> known = genreRepository.findAll().stream()
+                    .map(Genre::getTmdbId)
+                    .collect(Collectors.toSet());
+            genreRepository.saveAll(genres.stream()
+                    .filter(genre -> !known.contains(genre.getTmdbId()))
+                    .toList());
+        });
+        genreDictionary.reload();
+    }
+
+    // сетевой запрос выполняется вне транзакции, запись страницы и отметки — в одной транзакции
+    private void importPage(Progress progress, int page) {
+        try {
+            List<MovieDto> movies = movieApiClient.getPopularMoviesPage(page);
+            if (movies.isEmpty()) {
+                throw new IllegalStateException("Empty response for page " + page);
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                movieService.saveMovies(movies);
+                pageRepository.save(CatalogBootstrapPage.builder()
+                        .runId(progress.run.getId())
+                        .page(page)
+                        .movies(movies.size())
+                        .completedAt(LocalDateTime.now())
+                        .build());
+            });
+            progress.moviesSaved.addAndGet(movies.size());
+            int done = progress.pagesDone.incrementAndGet();
+            log.info("Catalog bootstrap: page {} saved ({}/{} pages, {} movies/s)",
+                    page, done, progress.pagesTotal, String.format("%.1f", progress.moviesPerSecond()));
+        } catch (RuntimeException e) {
+            log.warn("Catalog bootstrap: failed to load page {}: {}", page, e.getMessage());
+            progress.recordError(e);
+            recordFailure(progress, page, e);
+        }
+    }
+
+    private void recordFailure(Progress progress, int page, RuntimeException error) {
+        try {
+            pageRepository.recordFailure(progress.run.getId(), page, error.getMessage(), LocalDateTime.now());
+        } catch (DataAccessException e) {
+            // попытка не засчитана, страница повторится при следующем запуске
+            log.error("Failed to record catalog bootstrap failure of page {}: {}", page, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        pageWorkers.shutdownNow();
+    }
+
+    private static final class Progress {
+        private final CatalogBootstrapRun run;
+        private final int pagesTotal;
+        private final long startNanos = System.nanoTime();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger pagesDone = new AtomicInteger();
+        private final AtomicLong moviesSaved = new AtomicLong();
+        private final AtomicInteger errors = new AtomicInteger();
+        private volatile String lastError;
+        private volatile int failedPages;
+        private volatile boolean running = true;
+        private volatile long finishNanos;
+        private volatile LocalDateTime finishedAt;
+
+        Progress(CatalogBootstrapRun run) {
+            this.run = run;
+            this.pagesTotal = run.getToPage() - run.getFromPage() + 1;
+        }
+
+        void recordError(Exception e) {
+            errors.incrementAndGet();
+            lastError = e.getMessage();
+        }
+
+        void finish() {
+            finishNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            running = false;
+        }
+
+        double moviesPerSecond() {
+            long end = running ? System.nanoTime() : finishNanos;
+            double seconds = Math.max(1e-3, Duration.ofNanos(end - startNanos).toMillis() / 1000.0);
+            return moviesSaved.get() / seconds;
+        }
+
+        CatalogBootstrapStatusDto toDto() {
+            return CatalogBootstrapStatusDto.builder()
+                    .runId(run.getId())
+                    .running(running)
+                    .fromPage(run.getFromPage())
+                    .toPage(run.getToPage())
+                    .pagesTotal(pagesTotal)
+                    .pagesDone(pagesDone.get())
+                    .moviesSaved(moviesSaved.get())
+                    .moviesPerSecond(moviesPerSecond())
+                    .errors(errors.get())
+                    .lastError(lastError)
+                    .failedPages(failedPages)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
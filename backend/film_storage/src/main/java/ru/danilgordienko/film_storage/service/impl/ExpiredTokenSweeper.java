@@ -0,0 +1,91 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.danilgordienko.film_storage.repository.AccessTokenRepository;
+import ru.danilgordienko.film_storage.repository.RefreshTokenRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Периодически удаляет просроченные access и refresh токены.
+ * Удаление идёт пачками, каждая пачка в своей короткой транзакции,
+ * поэтому блокировки на таблицах не держатся долго.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiredTokenSweeper {
+
+    private final AccessTokenRepository accessTokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.security.token-sweeper.batch-size:1000}")
+    private int batchSize;
+
+    // ограничение на число пачек за один запуск, чтобы не занимать бд надолго
+    @Value("${app.security.token-sweeper.max-batches:100}")
+    private int maxBatches;
+
+    private final AtomicLong accessTableBytes = new AtomicLong();
+    private final AtomicLong refreshTableBytes = new AtomicLong();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("auth.tokens.table.size", accessTableBytes, AtomicLong::get)
+                .tag("table", "access_tokens")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("auth.tokens.table.size", refreshTableBytes, AtomicLong::get)
+                .tag("table", "refresh_tokens")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.token-sweeper.interval-ms:600000}")
+    public void sweepExpiredTokens() {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        sweep("access_tokens", now, accessTokenRepository::deleteExpiredBatch,
+                accessTokenRepository::tableSizeBytes, accessTableBytes);
+        sweep("refresh_tokens", now, refreshTokenRepository::deleteExpiredBatch,
+                refreshTokenRepository::tableSizeBytes, refreshTableBytes);
+    }
+
+    private void sweep(String table,
+                       LocalDateTime now,
+                       BiFunction<LocalDateTime, Integer, Integer> deleteBatch,
+                       LongSupplier tableSize,
+                       AtomicLong tableSizeGauge) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long deleted = 0;
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                int batch = deleteBatch.apply(now, batchSize);
+                deleted += batch;
+                if (batch < batchSize) {
+                    break;
+                }
+            }
+            tableSizeGauge.set(tableSize.getAsLong());
+            log.debug("Deleted {} expired rows from {}", deleted, table);
+        } catch (DataAccessException e) {
+            log.error("Failed to delete expired tokens from {}: {}", table, e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer("auth.tokens.sweep.duration", "table", table));
+            meterRegistry.counter("auth.tokens.swept", "table", table).increment(deleted);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.mapstruct.Named;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.danilgordienko.film_storage.model.entity.Genre;
+import ru.danilgordienko.film_storage.repository.GenreRepository;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Справочник жанров в памяти.
+ * Жанров несколько десятков и меняются они только при загрузке каталога, поэтому справочник
+ * читается из бд один раз при старте и заменяется целиком после сохранения новых жанров (reload).
+ * Снимок неизменяемый, читатели берут текущий без блокировок.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GenreDictionary {
+
+    private final GenreRepository genreRepository;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            reload();
+        } catch (DataAccessException e) {
+            // справочник загрузится при первом обращении
+            log.error("Failed to load genre dictionary: {}", e.getMessage(), e);
+        }
+    }
+
+    // перечитывает жанры из бд; версия растёт, только если набор жанров изменился
+    public Snapshot reload() {
+        List<Genre> genres = genreRepository.findAll();
+        Snapshot updated = snapshot.updateAndGet(current -> {
+            Snapshot loaded = Snapshot.of(current == null ? 1 : current.version() + 1, genres);
+            return current != null && current.byId().equals(loaded.byId()) ? current : loaded;
+        });
+        log.debug("Genre dictionary version {}: {} genres", updated.version(), updated.byId().size());
+        return updated;
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot.get();
+        return current != null ? current : reload();
+    }
+
+    // названия жанров по id из movies.genre_ids, используется MovieMapping
+    @Named("genreNames")
+    public List<String> names(long[] genreIds) {
+        if (genreIds == null || genreIds.length == 0) {
+            return List.of();
+        }
+        Snapshot current = current();
+        List<String> names = new ArrayList<>(genreIds.length);
+        for (long id : genreIds) {
+            Genre genre = current.byId().get(id);
+            if (genre != null) {
+                names.add(genre.getName());
+            }
+        }
+        return names;
+    }
+
+    public record Snapshot(long version, Map<Long, Genre> byId, Map<Long, Genre> byTmdbId) {
+
+        // жанры копируются: сущности из бд изменяемые, снимок — нет
+        static Snapshot of(long version, List<Genre> genres) {
+            List<Genre> copies = genres.stream()
+                    .map(genre -> new Genre(genre.getId(), genre.getTmdbId(), genre.getName()))
+                    .toList();
+            return new Snapshot(version,
+                    copies.stream().collect(Collectors.toUnmodifiableMap(Genre::getId, Function.identity())),
+                    copies.stream().collect(Collectors.toUnmodifiableMap(Genre::getTmdbId, Function.identity())));
+        }
+
+        public Optional<Genre> findByTmdbId(Long tmdbId) {
+            return Optional.ofNullable(byTmdbId.get(tmdbId));
+        }
+    }
+}
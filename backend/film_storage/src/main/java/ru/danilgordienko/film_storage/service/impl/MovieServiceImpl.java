@@ -2,35 +2,59 @@ package ru.danilgordienko.film_storage.service.impl;
 
 
 import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramBucket;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.*;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.core.SearchHitSupport;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieDetailsDto;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieDto;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieExportView;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieGenreView;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieListCacheDto;
 import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieListDto;
+import ru.danilgordienko.film_storage.model.dto.FacetCountDto;
+import ru.danilgordienko.film_storage.model.dto.MovieFacetedSearchDto;
+import ru.danilgordienko.film_storage.model.dto.MovieSearchCriteria;
 import ru.danilgordienko.film_storage.model.dto.PageDto;
 import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
 import ru.danilgordienko.film_storage.MovieAPI.MovieApiClient;
 import ru.danilgordienko.film_storage.exception.*;
 import ru.danilgordienko.film_storage.model.entity.Genre;
 import ru.danilgordienko.film_storage.model.entity.Movie;
-import ru.danilgordienko.film_storage.repository.GenreRepository;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+import ru.danilgordienko.film_storage.model.enums.ExportFormat;
+import ru.danilgordienko.film_storage.model.enums.MovieSearchSort;
+import ru.danilgordienko.film_storage.model.events.MoviesSavedEvent;
+import ru.danilgordienko.film_storage.repository.CursorPage;
 import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.repository.MovieSearchQueryRepository;
 import ru.danilgordienko.film_storage.repository.MovieSearchRepository;
 import ru.danilgordienko.film_storage.service.MovieService;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -39,11 +63,18 @@ import java.util.stream.StreamSupport;
 public class MovieServiceImpl implements MovieService {
 
     private final MovieRepository movieRepository;
-    private final GenreRepository genreRepository;
+    private final GenreDictionary genreDictionary;
     private final MovieMapping  movieMapping;
     private final MovieSearchRepository movieSearchRepository;
-    private final MovieApiClient movieApiClient;
+    private final SearchOutbox searchOutbox;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
     private final int size = 20;
+    // поиск с фильтрами листается через from/size: глубже max-pages страниц упирается в max_result_window
+    @Value("${app.search.page-mode.max-pages:50}")
+    private int maxPages;
+    // сколько строк выгрузки пишется между загрузками жанров и сбросом буфера
+    private static final int EXPORT_CHUNK_SIZE = 500;
 
     // Получение всех фильмов из бд
     public List<MovieListDto> getAllMovies(){
@@ -59,7 +90,66 @@ public class MovieServiceImpl implements MovieService {
         }
     }
 
-    // Получение страницы фильмов
+    // Потоковая выгрузка каталога начиная с фильма после afterId.
+    // Строки читаются курсором бд, жанры загружаются на каждую порцию,
+    // поэтому расход памяти не зависит от размера каталога
+    @Override
+    @Transactional
+    public void exportMovies(long afterId, ExportFormat format, OutputStream out) throws IOException {
+        log.debug("Exporting movies after id {} as {}", afterId, format);
+        ObjectWriter writer = objectMapper.writerFor(MovieListDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<MovieExportView> rows = movieRepository.streamForExport(afterId);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (format == ExportFormat.JSON) {
+                generator.writeStartArray();
+            } else {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+            }
+
+            long exported = 0;
+            List<MovieExportView> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            Iterator<MovieExportView> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !iterator.hasNext()) {
+                    writeExportChunk(chunk, writer, generator);
+                    exported += chunk.size();
+                    chunk.clear();
+                }
+            }
+
+            if (format == ExportFormat.JSON) {
+                generator.writeEndArray();
+            } else if (exported > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+            log.debug("Exported {} movies", exported);
+        } catch (DataAccessException e) {
+            log.error("Database access error: {}", e.getMessage(), e);
+            throw new DatabaseConnectionException("Database connection error", e);
+        }
+    }
+
+    private void writeExportChunk(List<MovieExportView> chunk,
+                                  ObjectWriter writer,
+                                  JsonGenerator generator) throws IOException {
+        List<Long> ids = chunk.stream().map(MovieExportView::getMovieId).toList();
+        Map<Long, List<String>> genres = movieRepository.findGenreNamesByMovieIds(ids).stream()
+                .collect(Collectors.groupingBy(MovieGenreView::getMovieId,
+                        Collectors.mapping(MovieGenreView::getName, Collectors.toList())));
+        for (MovieExportView row : chunk) {
+            writer.writeValue(generator,
+                    movieMapping.toMovieListDto(row, genres.getOrDefault(row.getMovieId(), List.of())));
+        }
+        generator.flush();
+    }
+
+    // Получение страницы фильмов.
+    // Сначала выбираются id фильмов страницы, затем загружаются только эти фильмы,
+    // названия жанров берутся из справочника, средняя оценка — из счётчиков на самом фильме
     @Cacheable(value = "movies", key = "#page", condition = "#page == 0")
     public PageDto<MovieListCacheDto> getMoviesPage(int page){
         try {
@@ -68,22 +158,23 @@ public class MovieServiceImpl implements MovieService {
             }
             log.debug("Getting all movies from database");
             Pageable pageable = PageRequest.of(page, size, Sort.by("title").ascending());
-            Page<Movie> moviePage = movieRepository.findAll(pageable);
-            log.debug("Found {} movies", moviePage.getContent().size());
-            return movieMapping.toMovieListCachePageDto(moviePage);
-        } catch (DataAccessException e) {
-            log.error("Database access error: {}", e.getMessage(), e);
-            throw new DatabaseConnectionException("Database connection error", e);
-        }
-    }
+            Page<Long> idPage = movieRepository.findPageIds(pageable);
+            List<Long> ids = idPage.getContent();
+            if (ids.isEmpty()) {
+                return new PageDto<>(List.of(), idPage.getNumber(), idPage.getTotalElements());
+            }
 
-    // Получение всех жанров из бд
-    private List<Genre> getAllGenres(){
-        try {
-            log.debug("Getting all genres from database");
-            var genres = genreRepository.findAll();
-            log.debug("Found {} genres", genres.size());
-            return genres;
+            Map<Long, Movie> movies = movieRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Movie::getId, Function.identity()));
+
+            // сохраняем порядок сортировки первой фазы
+            List<MovieListCacheDto> content = ids.stream()
+                    .map(movies::get)
+                    .filter(Objects::nonNull)
+                    .map(movieMapping::toMovieListCacheDto)
+                    .toList();
+            log.debug("Found {} movies", content.size());
+            return new PageDto<>(content, idPage.getNumber(), idPage.getTotalElements());
         } catch (DataAccessException e) {
             log.error("Database access error: {}", e.getMessage(), e);
             throw new DatabaseConnectionException("Database connection error", e);
@@ -136,60 +227,151 @@ public class MovieServiceImpl implements MovieService {
         }
     }
 
-    public PageDto<MovieListDto> searchMoviesPageByTitle(String query, int page) {
+    // первые страницы по номеру, дальше по cursor из предыдущего ответа
+    public PageDto<MovieListDto> searchMoviesPageByTitle(String query, int page, String cursor) {
         try {
             log.debug("Searching movies in Elasticsearch by title: {}", query);
-            Pageable pageable = PageRequest.of(page, size);
-            var searchResults = movieSearchRepository.findByTitleContaining(query, pageable);
-            log.debug("Found {} movies", searchResults.getContent().size());
-            return movieMapping.toMovieListPageDto(searchResults);
+            CursorPage<MovieDocument> searchResults = cursor == null || cursor.isBlank()
+                    ? movieSearchRepository.matchTitle(query, page, size)
+                    : movieSearchRepository.matchTitleAfter(query, cursor, size);
+            log.debug("Found {} movies", searchResults.content().size());
+            return new PageDto<>(searchResults.content().stream()
+                    .map(movieMapping::toMovieListDto)
+                    .toList(),
+                    searchResults.number(), searchResults.totalElements(), searchResults.cursor());
+        } catch (ElasticsearchException | RestClientException e) {
+            log.error("Error interacting with Elasticsearch", e);
+            throw new ElasticsearchConnectionException("Failed to search movies in Elasticsearch", e);
+        }
+    }
+
+    // поиск с фильтрами по жанрам, годам и рейтингу вместе со счётчиками по жанрам и десятилетиям
+    @Override
+    public MovieFacetedSearchDto searchMoviesWithFacets(MovieSearchCriteria criteria, int page) {
+        validateCriteria(criteria, page);
+        try {
+            log.debug("Searching movies in Elasticsearch with filters: {}", criteria);
+            Pageable pageable = PageRequest.of(page, size, searchSort(criteria));
+            SearchHits<MovieDocument> hits = movieSearchRepository.searchWithFacets(criteria, pageable);
+            @SuppressWarnings("unchecked")
+            Page<MovieDocument> documents = (Page<MovieDocument>) SearchHitSupport.unwrapSearchHits(
+                    SearchHitSupport.searchPageFor(hits, pageable));
+            log.debug("Found {} movies matching filters", hits.getTotalHits());
+
+            Map<String, ElasticsearchAggregation> aggregations =
+                    hits.getAggregations() instanceof ElasticsearchAggregations found
+                            ? found.aggregationsAsMap()
+                            : Map.of();
+            return MovieFacetedSearchDto.builder()
+                    .page(movieMapping.toMovieListPageDto(documents))
+                    .genres(genreFacets(aggregations.get(MovieSearchQueryRepository.GENRES_AGGREGATION)))
+                    .decades(decadeFacets(aggregations.get(MovieSearchQueryRepository.YEARS_AGGREGATION)))
+                    .build();
         } catch (ElasticsearchException | RestClientException e) {
             log.error("Error interacting with Elasticsearch", e);
             throw new ElasticsearchConnectionException("Failed to search movies in Elasticsearch", e);
         }
     }
 
-    @Cacheable(value = "movies", key = "#id", cacheManager = "binaryCacheManager")
-    public byte[] getPoster(Long id) {
-        Movie movie = getMovieById(id);
-        return movieApiClient.getPoster(movie);
+    private void validateCriteria(MovieSearchCriteria criteria, int page) {
+        if (page < 0 || page >= maxPages) {
+            throw new IllegalArgumentException("Page must be between 0 and " + (maxPages - 1));
+        }
+        if (criteria.getYearFrom() != null && criteria.getYearTo() != null
+                && criteria.getYearFrom() > criteria.getYearTo()) {
+            throw new IllegalArgumentException("yearFrom must not be greater than yearTo");
+        }
+        if (criteria.getRatingFrom() != null && criteria.getRatingTo() != null
+                && criteria.getRatingFrom() > criteria.getRatingTo()) {
+            throw new IllegalArgumentException("ratingFrom must not be greater than ratingTo");
+        }
+        for (Double rating : Arrays.asList(criteria.getRatingFrom(), criteria.getRatingTo())) {
+            if (rating != null && (rating.isNaN() || rating < 0 || rating > 10)) {
+                throw new IllegalArgumentException("Rating must be between 0 and 10");
+            }
+        }
+        // год подставляется в границу диапазона как yyyy-01-01
+        for (Integer year : Arrays.asList(criteria.getYearFrom(), criteria.getYearTo())) {
+            if (year != null && (year < 1000 || year > 9998)) {
+                throw new IllegalArgumentException("Year must be between 1000 and 9998");
+            }
+        }
+    }
+
+    // id в конце — однозначный порядок фильмов с одинаковым рейтингом или датой
+    private static Sort searchSort(MovieSearchCriteria criteria) {
+        Sort.Direction direction = criteria.getDirection() != null ? criteria.getDirection() : Sort.Direction.DESC;
+        MovieSearchSort sort = criteria.getSort() != null ? criteria.getSort() : MovieSearchSort.RELEVANCE;
+        return switch (sort) {
+            case RATING -> Sort.by(direction, "averageRating").and(Sort.by("id"));
+            case RELEASE_DATE -> Sort.by(direction, "release_date").and(Sort.by("id"));
+            // без текста запроса у всех фильмов одинаковый score, поэтому сначала лучшие по рейтингу
+            case RELEVANCE -> criteria.getQuery() != null && !criteria.getQuery().isBlank()
+                    ? Sort.unsorted()
+                    : Sort.by(Sort.Direction.DESC, "averageRating").and(Sort.by("id"));
+        };
+    }
+
+    private static List<FacetCountDto> genreFacets(ElasticsearchAggregation genres) {
+        if (genres == null) {
+            return List.of();
+        }
+        return genres.aggregation().getAggregate().sterms().buckets().array().stream()
+                .map(bucket -> new FacetCountDto(bucket.key().stringValue(), bucket.docCount()))
+                .toList();
     }
 
+    // годы из date_histogram складываются в десятилетия: 1994 -> "1990"
+    private static List<FacetCountDto> decadeFacets(ElasticsearchAggregation years) {
+        if (years == null) {
+            return List.of();
+        }
+        TreeMap<Integer, Long> decades = new TreeMap<>();
+        for (DateHistogramBucket bucket : years.aggregation().getAggregate().dateHistogram().buckets().array()) {
+            int year = Integer.parseInt(bucket.keyAsString());
+            decades.merge(Math.floorDiv(year, 10) * 10, bucket.docCount(), Long::sum);
+        }
+        return decades.entrySet().stream()
+                .map(decade -> new FacetCountDto(String.valueOf(decade.getKey()), decade.getValue()))
+                .toList();
+    }
+
+    // жанры из TMDB сопоставляются по tmdbId со справочником, запросов в бд нет
     private void attachGenresToMovies(List<Movie> movies) {
-        Map<Long, Genre> genresMap = getAllGenres().stream()
-                .collect(Collectors.toMap(Genre::getTmdbId, Function.identity()));
+        GenreDictionary.Snapshot genres = genreDictionary.current();
 
         for (Movie movie : movies) {
             Set<Genre> attachedGenres = movie.getGenres().stream()
-                    .map(genre -> genresMap.get(genre.getTmdbId()))
+                    .map(genre -> genres.byTmdbId().get(genre.getTmdbId()))
                     .filter(Objects::nonNull)
                     .collect(Collectors.toSet());
             movie.setGenres(attachedGenres);
+            movie.setGenreIds(attachedGenres.stream()
+                    .mapToLong(Genre::getId)
+                    .sorted()
+                    .toArray());
         }
     }
 
-    @Transactional
+    // Сохраняет фильмы в бд в транзакции вызывающего (CatalogBootstrap, populateMovies).
+    // Фильмы сопоставляются по tmdb_id: повторная загрузка тех же данных ничего не пишет,
+    // в outbox для индексации попадают только новые и изменившиеся фильмы
     @Override
-    public void initPopularMovies() {
-        var genres = movieApiClient.getGenres();
-        genreRepository.saveAll(genres);
-        for (int i = 1; i < 6; i++) {
-            var movies = movieApiClient.getPopularMoviesPage(i);
-            saveReceivedMovies(movies);
-        }
-    }
-
-    private void saveReceivedMovies(List<MovieDto> movies) {
+    @Transactional
+    public void saveMovies(List<MovieDto> movies) {
         try {
             var mappedMovies = movies.stream().map(movieMapping::toMovie).toList();
             attachGenresToMovies(mappedMovies);
-            saveMoviesDB(mappedMovies);
-            saveMoviesES(mappedMovies);
+            List<Long> changedIds = saveMoviesDB(mappedMovies);
+            if (changedIds.isEmpty()) {
+                log.debug("No new or changed movies among {} received", movies.size());
+                return;
+            }
+            searchOutbox.indexMovies(changedIds);
+            // постеры скачиваются в фоне после коммита (PosterPrefetcher)
+            eventPublisher.publishEvent(new MoviesSavedEvent(this, changedIds));
 
-            log.debug("Saved {} movies", movies.size());
-        } catch (ElasticsearchException | RestClientException e) {
-            log.error("Error interacting with Elasticsearch", e);
-            throw new ElasticsearchConnectionException("Failed to save movies in Elasticsearch", e);
+            log.debug("Saved {} new or changed movies of {} received", changedIds.size(), movies.size());
         } catch (DataAccessException e) {
             log.error("Database access error: {}", e.getMessage(), e);
             throw new DatabaseConnectionException("Database connection error", e);
@@ -205,7 +387,7 @@ public class MovieServiceImpl implements MovieService {
     public void populateMovies(MovieApiClient.MoviesReceivedEvent event) {
         log.debug("Saving recently released movies");
         List<MovieDto> movies = event.getMovies();
-        saveReceivedMovies(movies);
+        saveMovies(movies);
     }
 
     @Override
@@ -213,7 +395,7 @@ public class MovieServiceImpl implements MovieService {
     public void deleteMovie(Long id) {
         if (movieRepository.existsById(id)) {
             movieRepository.deleteById(id);
-            movieSearchRepository.deleteById(id);
+            searchOutbox.deleteMovie(id);
             return;
         }
         log.warn("Attempted to delete movie with id={} which dont exist", id);
@@ -225,25 +407,9 @@ public class MovieServiceImpl implements MovieService {
         // implementation empty
     }
 
-    private void saveMoviesDB(List<Movie> movies){
-        log.debug("Saving movies in database");
-        List<Movie> savedMovies = movieRepository.saveAll(movies);
-
-        if (savedMovies.size() != movies.size()) {
-            throw new IllegalStateException("Not all movies were saved. Transaction rollback.");
-        }
-    }
-
-    private void saveMoviesES(List<Movie> movies){
-        log.debug("Saving movies in Elasticsearch");
-        var savedMovies = movieSearchRepository.saveAll(movies
-                .stream()
-                .map(movieMapping::toMovieDocument)
-                .toList());
-
-        long savedCount = StreamSupport.stream(savedMovies.spliterator(), false).count();
-        if (savedCount != movies.size()) {
-            throw new IllegalStateException("Not all movies were saved in Elasticsearch");
-        }
+    // id вставленных и изменённых фильмов
+    private List<Long> saveMoviesDB(List<Movie> movies){
+        log.debug("Upserting movies in database");
+        return movieRepository.upsertAll(movies);
     }
 }
@@ -0,0 +1,93 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import ru.danilgordienko.film_storage.exception.ElasticsearchConnectionException;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieSuggestionDto;
+import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
+import ru.danilgordienko.film_storage.repository.MovieSearchRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Подсказки названий фильмов при вводе (GET /api/movies/suggest).
+ * Запрос на каждое нажатие клавиши, поэтому ответ ограничен max-results подсказками
+ * и кэшируется в памяти узла по нормализованному префиксу: популярные префиксы
+ * ("з", "зв", "звё") повторяются у всех пользователей.
+ * Новые фильмы появляются в подсказках не позже чем через ttl.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MovieSuggester {
+
+    private final MovieSearchRepository movieSearchRepository;
+    private final MovieMapping movieMapping;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.search.suggest.max-results:10}")
+    private int maxResults;
+
+    @Value("${app.search.suggest.max-prefix-length:50}")
+    private int maxPrefixLength;
+
+    @Value("${app.search.suggest.cache.ttl:60s}")
+    private Duration ttl;
+
+    @Value("${app.search.suggest.cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, List<MovieSuggestionDto>> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "movie-suggestions");
+    }
+
+    // limit больше max-results обрезается; в кэше всегда полный список, ответ — его начало
+    public List<MovieSuggestionDto> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<MovieSuggestionDto> suggestions = cache.get(prefix, this::load);
+        return suggestions.subList(0, Math.min(limit, suggestions.size()));
+    }
+
+    private List<MovieSuggestionDto> load(String prefix) {
+        try {
+            log.debug("Loading movie suggestions for prefix '{}'", prefix);
+            return movieSearchRepository.suggestTitles(prefix, maxResults).stream()
+                    .map(movieMapping::toMovieSuggestionDto)
+                    .toList();
+        } catch (ElasticsearchException | RestClientException e) {
+            log.error("Error interacting with Elasticsearch", e);
+            throw new ElasticsearchConnectionException("Failed to suggest movies from Elasticsearch", e);
+        }
+    }
+
+    // "  Звёздные   ВОЙ" и "звёздные вой" — один ключ кэша
+    private String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String prefix = query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return prefix.length() > maxPrefixLength ? prefix.substring(0, maxPrefixLength) : prefix;
+    }
+}
@@ -0,0 +1,221 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.danilgordienko.film_storage.exception.ServiceOverloadedException;
+import ru.danilgordienko.film_storage.model.enums.PosterSize;
+import ru.danilgordienko.film_storage.model.events.MoviesSavedEvent;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.service.PosterService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Фоновая загрузка постеров для новых фильмов.
+ * Запускается после коммита сохранения фильмов, при старте приложения и по расписанию.
+ * Загружается размер для списков (app.posters.prefetch.size, по умолчанию w185).
+ * Источник задач — сами фильмы без скачанного варианта этого размера, поэтому после перезапуска
+ * загрузка продолжается с того места, где остановилась.
+ *
+ * Число одновременных загрузок и их частота ограничены, чтобы не отнимать
+ * слоты RPC у пользовательских запросов постеров.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PosterPrefetcher {
+
+    private final MovieRepository movieRepository;
+    private final PosterService posterService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.posters.prefetch.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.posters.prefetch.rate-per-second:5}")
+    private double ratePerSecond;
+
+    @Value("${app.posters.prefetch.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.posters.prefetch.size:w185}")
+    private String sizeValue;
+
+    @Value("${app.posters.missing.ttl:7d}")
+    private Duration missingTtl;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "poster-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final AtomicLong remaining = new AtomicLong();
+    // System.nanoTime(), до которого диспетчер не начинает новые загрузки
+    private final AtomicLong pauseUntilNanos = new AtomicLong(System.nanoTime());
+
+    private PosterSize size;
+    private Semaphore permits;
+    private long intervalNanos;
+    private long nextStartNanos;
+    private Counter completed;
+    private Counter failed;
+
+    @PostConstruct
+    void init() {
+        size = PosterSize.fromValue(sizeValue);
+        permits = new Semaphore(concurrency);
+        intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        completed = meterRegistry.counter("posters.prefetch.completed");
+        failed = meterRegistry.counter("posters.prefetch.failed");
+        Gauge.builder("posters.prefetch.remaining", remaining, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMoviesSaved(MoviesSavedEvent event) {
+        log.debug("Scheduling poster prefetch for {} new movies", event.getMovieIds().size());
+        requestRun();
+    }
+
+    // продолжаем незавершённую загрузку после перезапуска
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        requestRun();
+    }
+
+    @Scheduled(fixedDelayString = "${app.posters.prefetch.interval-ms:1800000}",
+            initialDelayString = "${app.posters.prefetch.interval-ms:1800000}")
+    public void onSchedule() {
+        requestRun();
+    }
+
+    // одновременно работает один проход; запрос во время прохода запускает ещё один после него
+    private void requestRun() {
+        pending.set(true);
+        if (running.compareAndSet(false, true)) {
+            dispatcher.execute(this::runPending);
+        }
+    }
+
+    private void runPending() {
+        try {
+            while (pending.getAndSet(false)) {
+                prefetchAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Poster prefetch interrupted");
+        } catch (DataAccessException e) {
+            log.error("Poster prefetch stopped, database error: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+        if (pending.get() && !dispatcher.isShutdown() && running.compareAndSet(false, true)) {
+            dispatcher.execute(this::runPending);
+        }
+    }
+
+    private void prefetchAll() throws InterruptedException {
+        // просроченные отметки об отсутствии постера попадают в обход и проверяются заново
+        LocalDateTime missingSince = LocalDateTime.now().minus(missingTtl);
+        remaining.set(movieRepository.countWithoutPosterVariant(size.getValue(), missingSince));
+        if (remaining.get() == 0) {
+            return;
+        }
+        log.info("Prefetching {} posters for {} movies", size.getValue(), remaining.get());
+        long startNanos = System.nanoTime();
+        long started = 0;
+
+        long afterId = 0;
+        List<Long> ids;
+        while (!(ids = movieRepository.findIdsWithoutPosterVariant(afterId, size.getValue(), missingSince, batchSize))
+                .isEmpty()) {
+            for (Long id : ids) {
+                throttle();
+                permits.acquire();
+                prefetch(id);
+                started++;
+            }
+            afterId = ids.getLast();
+            logProgress(started, startNanos);
+        }
+
+        // ждём завершения последних загрузок
+        permits.acquire(concurrency);
+        permits.release(concurrency);
+        logProgress(started, startNanos);
+    }
+
+    private void prefetch(Long movieId) {
+        try {
+            posterService.getPoster(movieId, size).whenComplete((poster, e) -> {
+                permits.release();
+                remaining.decrementAndGet();
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof ServiceOverloadedException overloaded) {
+                    // пользовательские запросы заняли все слоты RPC, диспетчер уступает им retryAfter
+                    pauseUntilNanos.accumulateAndGet(
+                            System.nanoTime() + TimeUnit.SECONDS.toNanos(overloaded.getRetryAfterSeconds()), Math::max);
+                    failed.increment();
+                } else if (cause != null || poster.isEmpty()) {
+                    failed.increment();
+                } else {
+                    completed.increment();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            failed.increment();
+            remaining.decrementAndGet();
+            log.warn("Failed to prefetch poster for movie {}: {}", movieId, e.getMessage());
+        }
+    }
+
+    // не чаще rate-per-second запусков загрузки и не раньше конца паузы после отказа по перегрузке
+    private void throttle() throws InterruptedException {
+        long now = System.nanoTime();
+        long startAt = Math.max(nextStartNanos, pauseUntilNanos.get());
+        if (startAt - now > 0) {
+            LockSupport.parkNanos(startAt - now);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        nextStartNanos = Math.max(now, startAt) + intervalNanos;
+    }
+
+    private void logProgress(long started, long startNanos) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        log.info("Poster prefetch: {} started, {} remaining, {} posters/s",
+                started, remaining.get(), String.format("%.1f", started / seconds));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+}
@@ -0,0 +1,232 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.danilgordienko.film_storage.MovieAPI.MovieApiClient;
+import ru.danilgordienko.film_storage.exception.DatabaseConnectionException;
+import ru.danilgordienko.film_storage.exception.MovieNotFoundException;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MoviePosterView;
+import ru.danilgordienko.film_storage.model.enums.PosterSize;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.service.PosterService;
+import ru.danilgordienko.film_storage.storage.PosterFile;
+import ru.danilgordienko.film_storage.storage.PosterStore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Постеры фильмов.
+ * Каждый размер (w92, w185, w500) скачивается из TMDB и хранится отдельно.
+ * Порядок поиска: локальное хранилище (по хешу варианта) -> общий Redis кэш (если включён) -> film_fetcher.
+ * Скачанный постер сохраняется на диск, дальше он отдаётся из файла без загрузки в память.
+ * Одновременные промахи по одному постеру объединяются в одну загрузку,
+ * отсутствующие в TMDB постеры кэшируются на короткое время и отмечаются в movie_poster_variants.
+ */
+@Service
+@Slf4j
+public class PosterServiceImpl implements PosterService {
+
+    private static final String SHARED_CACHE = "posters";
+
+    private final MovieRepository movieRepository;
+    private final MovieApiClient movieApiClient;
+    private final PosterStore posterStore;
+    private final CacheManager binaryCacheManager;
+    private final Executor taskExecutor;
+    private final boolean sharedTierEnabled;
+
+    // загрузки, которые сейчас выполняются, по id фильма, размеру и пути постера
+    private final ConcurrentMap<String, CompletableFuture<Optional<PosterFile>>> inFlight = new ConcurrentHashMap<>();
+    // постеры, которых нет в TMDB (film_fetcher вернул пустой ответ: нет poster_path или 404)
+    private final Cache<String, Boolean> missingPosters;
+    // срок отметки в БД об отсутствии постера: после него размер запрашивается у TMDB снова
+    private final Duration missingTtl;
+
+    private final Counter fetchesStarted;
+    private final Counter coalescedRequests;
+    private final Counter negativeHits;
+
+    public PosterServiceImpl(MovieRepository movieRepository,
+                             MovieApiClient movieApiClient,
+                             PosterStore posterStore,
+                             @Qualifier("binaryCacheManager") CacheManager binaryCacheManager,
+                             @Qualifier("applicationTaskExecutor") Executor taskExecutor,
+                             @Value("${app.posters.redis-tier.enabled:false}") boolean sharedTierEnabled,
+                             @Value("${app.posters.negative-cache.ttl:5m}") Duration negativeTtl,
+                             @Value("${app.posters.missing.ttl:7d}") Duration missingTtl,
+                             MeterRegistry meterRegistry) {
+        this.movieRepository = movieRepository;
+        this.movieApiClient = movieApiClient;
+        this.posterStore = posterStore;
+        this.binaryCacheManager = binaryCacheManager;
+        this.taskExecutor = taskExecutor;
+        this.sharedTierEnabled = sharedTierEnabled;
+        this.missingTtl = missingTtl;
+        this.missingPosters = Caffeine.newBuilder()
+                .expireAfterWrite(negativeTtl)
+                .maximumSize(100_000)
+                .build();
+        this.fetchesStarted = meterRegistry.counter("posters.fetch.started");
+        this.coalescedRequests = meterRegistry.counter("posters.fetch.coalesced");
+        this.negativeHits = meterRegistry.counter("posters.negative.hits");
+        Gauge.builder("posters.fetch.in.flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    // локальный постер возвращается сразу, промах ждёт ответа film_fetcher без занятого потока
+    @Override
+    public CompletableFuture<Optional<PosterFile>> getPoster(Long movieId, PosterSize size) {
+        MoviePosterView movie = findMovie(movieId, size);
+
+        Optional<PosterFile> local = posterStore.find(movie.getPosterHash());
+        if (local.isPresent()) {
+            return CompletableFuture.completedFuture(local);
+        }
+
+        if (movie.getPoster() == null || Boolean.TRUE.equals(movie.getPosterMissing())) {
+            log.debug("Movie with ID {} has no {} poster", movieId, size.getValue());
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        String key = key(movieId, size, movie.getPoster());
+        if (missingPosters.getIfPresent(key) != null) {
+            negativeHits.increment();
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        // single-flight: одновременные промахи по одному постеру ждут одну и ту же загрузку
+        CompletableFuture<Optional<PosterFile>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<PosterFile>> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalescedRequests.increment();
+            return existing;
+        }
+        fetchesStarted.increment();
+        try {
+            fetch(movieId, size, movie.getPoster()).whenComplete((result, e) -> {
+                inFlight.remove(key, created);
+                if (e != null) {
+                    created.completeExceptionally(e);
+                } else {
+                    created.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private CompletableFuture<Optional<PosterFile>> fetch(Long movieId, PosterSize size, String posterPath) {
+        String key = key(movieId, size, posterPath);
+        byte[] shared = readShared(key);
+        if (shared != null) {
+            return CompletableFuture.completedFuture(Optional.of(store(movieId, size, posterPath, shared)));
+        }
+        // запись на диск и в бд выполняется не в потоке, принимающем ответы RabbitMQ
+        return movieApiClient.getPosterAsync(movieId, posterPath, size)
+                .handleAsync((bytes, e) -> {
+                    if (e != null) {
+                        // ошибки не кэшируются и не выдаются за отсутствие постера: клиент получит 502/504
+                        // и следующий запрос попробует снова
+                        log.warn("Failed to get {} poster for movie {}: {}", size.getValue(), movieId, e.getMessage());
+                        throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                    }
+                    if (bytes.length == 0) {
+                        log.debug("TMDB has no {} poster for movie {}", size.getValue(), movieId);
+                        missingPosters.put(key, Boolean.TRUE);
+                        saveMissing(movieId, size, posterPath);
+                        return Optional.<PosterFile>empty();
+                    }
+                    writeShared(key, bytes);
+                    return Optional.of(store(movieId, size, posterPath, bytes));
+                }, taskExecutor);
+    }
+
+    private PosterFile store(Long movieId, PosterSize size, String posterPath, byte[] bytes) {
+        PosterFile stored = posterStore.store(bytes);
+        saveHash(movieId, size, posterPath, stored.hash());
+        return stored;
+    }
+
+    // путь TMDB входит в ключ: после смены постера фильма старые записи кэшей не подходят
+    private static String key(Long movieId, PosterSize size, String posterPath) {
+        return movieId + ":" + size.getValue() + ":" + posterPath;
+    }
+
+    private MoviePosterView findMovie(Long movieId, PosterSize size) {
+        try {
+            return movieRepository.findPosterById(movieId, size.getValue(),
+                            LocalDateTime.now().minus(missingTtl))
+                    .orElseThrow(() -> {
+                        log.debug("Movie with ID {} not found", movieId);
+                        return new MovieNotFoundException("Movie with id " + movieId + " not found");
+                    });
+        } catch (DataAccessException e) {
+            log.error("Database access error: {}", e.getMessage(), e);
+            throw new DatabaseConnectionException("Database connection error", e);
+        }
+    }
+
+    private void saveHash(Long movieId, PosterSize size, String posterPath, String hash) {
+        try {
+            movieRepository.savePosterVariant(movieId, posterPath, size.getValue(), hash);
+        } catch (DataAccessException e) {
+            // файл уже на диске, хеш запишется при следующем запросе
+            log.warn("Failed to save {} poster hash for movie {}: {}", size.getValue(), movieId, e.getMessage());
+        }
+    }
+
+    // без отметки фоновая загрузка запрашивала бы такой постер на каждом проходе
+    private void saveMissing(Long movieId, PosterSize size, String posterPath) {
+        try {
+            movieRepository.savePosterMissing(movieId, posterPath, size.getValue());
+        } catch (DataAccessException e) {
+            log.warn("Failed to mark {} poster of movie {} as missing: {}", size.getValue(), movieId, e.getMessage());
+        }
+    }
+
+    // общий Redis кэш нужен, чтобы узлы без локальной копии не ходили в film_fetcher
+    private byte[] readShared(String key) {
+        if (!sharedTierEnabled) {
+            return null;
+        }
+        try {
+            org.springframework.cache.Cache cache = binaryCacheManager.getCache(SHARED_CACHE);
+            return cache == null ? null : cache.get(key, byte[].class);
+        } catch (RuntimeException e) {
+            log.warn("Failed to read poster {} from Redis: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeShared(String key, byte[] bytes) {
+        if (!sharedTierEnabled) {
+            return;
+        }
+        try {
+            org.springframework.cache.Cache cache = binaryCacheManager.getCache(SHARED_CACHE);
+            if (cache != null) {
+                cache.put(key, bytes);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to write poster {} to Redis: {}", key, e.getMessage());
+        }
+    }
+}
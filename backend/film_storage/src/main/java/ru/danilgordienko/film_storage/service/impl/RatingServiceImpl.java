@@ -1,41 +1,35 @@
 package ru.danilgordienko.film_storage.service.impl;
 
-import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
 import ru.danilgordienko.film_storage.exception.RatingNotVisibleException;
 import ru.danilgordienko.film_storage.model.dto.RatingDto;
 import ru.danilgordienko.film_storage.model.dto.UsersDto.UserRatingDto;
 import ru.danilgordienko.film_storage.model.dto.mapping.UserMapping;
 import ru.danilgordienko.film_storage.exception.DatabaseConnectionException;
-import ru.danilgordienko.film_storage.exception.ElasticsearchConnectionException;
+import ru.danilgordienko.film_storage.exception.MovieNotFoundException;
 import ru.danilgordienko.film_storage.exception.RatingAlreadyExistsException;
-import ru.danilgordienko.film_storage.model.entity.Movie;
 import ru.danilgordienko.film_storage.model.entity.Rating;
 import ru.danilgordienko.film_storage.model.entity.User;
 import ru.danilgordienko.film_storage.model.enums.RatingVisibility;
-import ru.danilgordienko.film_storage.repository.MovieSearchRepository;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
 import ru.danilgordienko.film_storage.repository.RatingRepository;
-import ru.danilgordienko.film_storage.service.MovieService;
 import ru.danilgordienko.film_storage.service.RatingService;
 import ru.danilgordienko.film_storage.service.UserService;
 
-import java.util.List;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RatingServiceImpl implements RatingService {
 
     private final RatingRepository ratingRepository;
-    private final MovieSearchRepository  movieSearchRepository;
+    private final SearchOutbox searchOutbox;
     private final UserMapping  userMapping;
     private final UserService userService;
-    private final MovieService movieService;
+    private final MovieRepository movieRepository;
 
 
     //добавляем рейтинг к фильму
@@ -43,7 +37,12 @@ public class RatingServiceImpl implements RatingService {
     public void addRating(Long id, RatingDto rating, String username) {
         try {
             var user = userService.getUserByEmail(username);
-            var movie = movieService.getMovieById(id);
+            if (!movieRepository.existsById(id)) {
+                log.debug("Movie with ID {} not found", id);
+                throw new MovieNotFoundException("Movie with id " + id + " not found");
+            }
+            // ссылка без загрузки фильма и его оценок
+            var movie = movieRepository.getReferenceById(id);
 
             if (ratingRepository.existsByUserAndMovie(user, movie)) {
                 log.warn("Rating not added: user '{}' has already rated this movie", username);
@@ -58,47 +57,18 @@ public class RatingServiceImpl implements RatingService {
                     .build();
 
             ratingRepository.save(rate);
+            // счётчики обновляются в той же транзакции, что и вставка оценки
+            movieRepository.applyRatingDelta(id, rate.getRating(), 1);
 
-            // Update average rating in Elasticsearch
-            // Transaction will roll back if an error occurs
-            updateAverageRatingInElasticsearch(movie);
-            log.debug("Rating added by user '{}' for movie '{}'", username, movie.getTitle());
+            // средняя оценка в Elasticsearch обновится после коммита (SearchIndexer)
+            searchOutbox.indexMovie(id);
+            log.debug("Rating added by user '{}' for movie with ID {}", username, id);
         } catch (DataAccessException e) {
             log.error("Database access error while fetching by ID", e);
             throw new DatabaseConnectionException("Failed to retrieve user from DB", e);
         }
     }
 
-    // обноляет среднюю оценку у фильма в Elasticsearch
-    private void updateAverageRatingInElasticsearch(Movie movie) {
-        try {
-            double avgRating = calculateAverageRating(movie);
-
-            movieSearchRepository.findById(movie.getId()).ifPresent(movieDoc -> {
-                movieDoc.setAverageRating(avgRating);
-                movieSearchRepository.save(movieDoc);
-                log.debug("Average rating updated in Elasticsearch: {}", avgRating);
-            });
-        } catch (ElasticsearchException | RestClientException e) {
-            log.error("Elasticsearch error while updating average rating", e);
-            throw new ElasticsearchConnectionException("Failed to update movie in Elasticsearch", e);
-        } catch (Exception e) {
-            log.error("Unexpected error while updating rating: {}", e.getMessage(), e);
-            throw new RuntimeException("Unexpected error while updating rating", e);
-        }
-    }
-
-    // считает среднуюю оценку фильма
-    private double calculateAverageRating(Movie movie) {
-        List<Rating> ratings = movie.getRatings();
-        if (ratings == null || ratings.isEmpty()) return 0.0;
-
-        return ratings.stream()
-                .mapToInt(Rating::getRating)
-                .average()
-                .orElse(0.0);
-    }
-
     // получение оценка пользователя по username
     @Override
     public UserRatingDto getUserRatingsByUsername(String username) {
@@ -0,0 +1,298 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
+import ru.danilgordienko.film_storage.model.dto.mapping.UserMapping;
+import ru.danilgordienko.film_storage.model.entity.Movie;
+import ru.danilgordienko.film_storage.model.entity.SearchOutboxEvent;
+import ru.danilgordienko.film_storage.model.entity.User;
+import ru.danilgordienko.film_storage.model.enums.SearchEntityType;
+import ru.danilgordienko.film_storage.model.enums.SearchOperation;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.repository.SearchOutboxRepository;
+import ru.danilgordienko.film_storage.repository.UserRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Переносит события search_outbox в Elasticsearch через Bulk API.
+ * Просыпается после коммита транзакции с новыми событиями (SearchOutbox) и раз в poll-interval,
+ * ждёт linger, чтобы собрать изменения соседних транзакций, и отправляет до batch-size событий одним запросом.
+ *
+ * Документ строится из текущего состояния в бд и пишется с внешней версией search_version сущности,
+ * удаление — с версией из события DELETE. Если несколько экземпляров разбирают outbox одновременно,
+ * Elasticsearch отклоняет (409) запись, которая старее уже записанной: такое событие уже перекрыто
+ * и удаляется из outbox. Неудачные события остаются в outbox и повторяются с экспоненциальной задержкой.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexer {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final SearchOutboxRepository outboxRepository;
+    private final MovieRepository movieRepository;
+    private final UserRepository userRepository;
+    private final MovieMapping movieMapping;
+    private final UserMapping userMapping;
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final SearchReindexer searchReindexer;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.search.indexer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.search.indexer.linger-ms:200}")
+    private long lingerMs;
+
+    @Value("${app.search.indexer.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${app.search.indexer.backoff-initial-ms:1000}")
+    private long backoffInitialMs;
+
+    @Value("${app.search.indexer.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private Counter indexed;
+    private Counter failed;
+
+    @PostConstruct
+    void init() {
+        indexed = meterRegistry.counter("search.indexer.indexed");
+        failed = meterRegistry.counter("search.indexer.failed");
+        Gauge.builder("search.outbox.pending", pending, AtomicLong::get)
+                .register(meterRegistry);
+        // возраст самого старого неотправленного события
+        TimeGauge.builder("search.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        worker.execute(this::run);
+    }
+
+    // вызывается после коммита транзакции с новыми событиями
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                wakeUps.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeUps.drainPermits();
+                TimeUnit.MILLISECONDS.sleep(lingerMs);
+                drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // бд недоступна: события остаются в outbox до следующего опроса
+                log.error("Search indexer error: {}", e.getMessage(), e);
+            }
+        }
+        log.info("Search indexer stopped");
+    }
+
+    // отправляет пачки, пока outbox отдаёт полные пачки
+    void drain() {
+        Integer claimed;
+        do {
+            claimed = transactionTemplate.execute(status -> indexBatch());
+        } while (claimed != null && claimed == batchSize && !Thread.currentThread().isInterrupted());
+        updateLag();
+    }
+
+    // события пачки заблокированы до конца транзакции: отправленные удаляются, неудачные переносятся
+    private int indexBatch() {
+        List<SearchOutboxEvent> events = outboxRepository.claimBatch(LocalDateTime.now(), batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // на документ отправляется одна операция по последнему событию, предыдущие устарели
+        Map<DocumentKey, SearchOutboxEvent> latest = new LinkedHashMap<>();
+        for (SearchOutboxEvent event : events) {
+            latest.put(DocumentKey.of(event), event);
+        }
+        List<SearchOutboxEvent> toSend = new ArrayList<>(latest.values());
+        List<SearchOutboxEvent> done = events.stream()
+                .filter(event -> latest.get(DocumentKey.of(event)) != event)
+                .collect(Collectors.toCollection(ArrayList::new));
+        // событие применено, только если успешны операции во всех его индексах
+        Set<SearchOutboxEvent> retry = new LinkedHashSet<>();
+        List<SearchOutboxEvent> owners = new ArrayList<>();
+        List<BulkOperation> operations = toOperations(toSend, owners);
+
+        try {
+            // пусто, если все события пачки относятся к уже удалённым сущностям
+            List<BulkResponseItem> items = operations.isEmpty()
+                    ? List.of()
+                    : elasticsearchClient.bulk(BulkRequest.of(b -> b.operations(operations))).items();
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                // 409: в индексе уже документ с той же или более новой версией, событие перекрыто
+                if (item.error() != null && item.status() != 409) {
+                    SearchOutboxEvent event = owners.get(i);
+                    event.setLastError(item.error().reason());
+                    retry.add(event);
+                }
+            }
+        } catch (IOException | ElasticsearchException e) {
+            log.warn("Bulk request to Elasticsearch failed: {}", e.getMessage());
+            toSend.forEach(event -> event.setLastError(e.getMessage()));
+            retry.addAll(toSend);
+        }
+        toSend.stream()
+                .filter(event -> !retry.contains(event))
+                .forEach(done::add);
+
+        outboxRepository.deleteAllInBatch(done);
+        retry.forEach(this::reschedule);
+        indexed.increment(done.size());
+        failed.increment(retry.size());
+        log.debug("Search indexer: {} events applied, {} rescheduled", done.size(), retry.size());
+        return events.size();
+    }
+
+    // owners[i] — событие, к которому относится операция i
+    private List<BulkOperation> toOperations(List<SearchOutboxEvent> events, List<SearchOutboxEvent> owners) {
+        Map<Long, Movie> movies = movieRepository.findAllById(idsToIndex(events, SearchEntityType.MOVIE))
+                .stream()
+                .collect(Collectors.toMap(Movie::getId, Function.identity()));
+        Map<Long, User> users = userRepository.findAllById(idsToIndex(events, SearchEntityType.USER))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<BulkOperation> operations = new ArrayList<>(events.size());
+        for (SearchOutboxEvent event : events) {
+            String id = String.valueOf(event.getEntityId());
+            Object document = null;
+            long version;
+            if (event.getOperation() == SearchOperation.DELETE) {
+                version = event.getVersion();
+            } else if (event.getEntityType() == SearchEntityType.MOVIE && movies.containsKey(event.getEntityId())) {
+                Movie movie = movies.get(event.getEntityId());
+                document = movieMapping.toMovieDocument(movie);
+                version = movie.getSearchVersion();
+            } else if (event.getEntityType() == SearchEntityType.USER && users.containsKey(event.getEntityId())) {
+                User user = users.get(event.getEntityId());
+                document = userMapping.toUserDocument(user);
+                version = user.getSearchVersion();
+            } else {
+                // сущность удалена после события: документ удалит событие DELETE той же транзакции
+                continue;
+            }
+            Document source = document == null
+                    ? null
+                    : elasticsearchOperations.getElasticsearchConverter().mapObject(document);
+            for (String index : targetIndices(event.getEntityType())) {
+                owners.add(event);
+                if (source != null) {
+                    operations.add(BulkOperation.of(o -> o.index(i -> i
+                            .index(index)
+                            .id(id)
+                            .version(version)
+                            .versionType(VersionType.External)
+                            .document(source))));
+                } else {
+                    operations.add(BulkOperation.of(o -> o.delete(d -> d
+                            .index(index)
+                            .id(id)
+                            .version(version)
+                            .versionType(VersionType.External))));
+                }
+            }
+        }
+        return operations;
+    }
+
+    private static Set<Long> idsToIndex(List<SearchOutboxEvent> events, SearchEntityType type) {
+        return events.stream()
+                .filter(event -> event.getEntityType() == type && event.getOperation() == SearchOperation.INDEX)
+                .map(SearchOutboxEvent::getEntityId)
+                .collect(Collectors.toSet());
+    }
+
+    // псевдоним индекса и, во время перестроения, новый индекс, чтобы он не отстал от изменений
+    private List<String> targetIndices(SearchEntityType type) {
+        String alias = searchReindexer.aliasName(type);
+        return searchReindexer.buildingIndex(type)
+                .map(building -> List.of(alias, building))
+                .orElseGet(() -> List.of(alias));
+    }
+
+    // задержка удваивается с каждой попыткой, но не больше backoff-max
+    private void reschedule(SearchOutboxEvent event) {
+        int attempts = event.getAttempts() + 1;
+        long delayMs = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempts - 1, 30));
+        event.setAttempts(attempts);
+        event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delayMs)));
+        if (event.getLastError() != null && event.getLastError().length() > MAX_ERROR_LENGTH) {
+            event.setLastError(event.getLastError().substring(0, MAX_ERROR_LENGTH));
+        }
+    }
+
+    private void updateLag() {
+        pending.set(outboxRepository.count());
+        lagMillis.set(outboxRepository.findOldestCreatedAt()
+                .map(createdAt -> Math.max(0, Duration.between(createdAt, LocalDateTime.now()).toMillis()))
+                .orElse(0L));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private record DocumentKey(SearchEntityType type, Long id) {
+        static DocumentKey of(SearchOutboxEvent event) {
+            return new DocumentKey(event.getEntityType(), event.getEntityId());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.danilgordienko.film_storage.model.entity.SearchOutboxEvent;
+import ru.danilgordienko.film_storage.model.enums.SearchEntityType;
+import ru.danilgordienko.film_storage.model.enums.SearchOperation;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.repository.SearchOutboxRepository;
+import ru.danilgordienko.film_storage.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Запись изменений для Elasticsearch в outbox.
+ * Вызывается в транзакции изменения данных: событие сохраняется или откатывается вместе с ним,
+ * а сам запрос к Elasticsearch выполняет SearchIndexer после коммита.
+ * В той же транзакции сущность получает новую search_version — внешнюю версию документа,
+ * по которой Elasticsearch отклоняет запись более старого состояния.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchOutbox {
+
+    private final SearchOutboxRepository outboxRepository;
+    private final MovieRepository movieRepository;
+    private final UserRepository userRepository;
+    private final SearchIndexer searchIndexer;
+
+    public void indexMovies(Collection<Long> movieIds) {
+        enqueue(SearchEntityType.MOVIE, SearchOperation.INDEX, movieIds);
+    }
+
+    public void indexMovie(Long movieId) {
+        enqueue(SearchEntityType.MOVIE, SearchOperation.INDEX, List.of(movieId));
+    }
+
+    public void deleteMovie(Long movieId) {
+        enqueue(SearchEntityType.MOVIE, SearchOperation.DELETE, List.of(movieId));
+    }
+
+    public void indexUser(Long userId) {
+        enqueue(SearchEntityType.USER, SearchOperation.INDEX, List.of(userId));
+    }
+
+    public void deleteUser(Long userId) {
+        enqueue(SearchEntityType.USER, SearchOperation.DELETE, List.of(userId));
+    }
+
+    private void enqueue(SearchEntityType type, SearchOperation operation, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (operation == SearchOperation.INDEX) {
+            bumpSearchVersion(type, ids);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.saveAll(ids.stream()
+                .map(id -> SearchOutboxEvent.builder()
+                        .entityType(type)
+                        .entityId(id)
+                        .operation(operation)
+                        .version(operation == SearchOperation.DELETE ? outboxRepository.nextSearchVersion() : null)
+                        .createdAt(now)
+                        .nextAttemptAt(now)
+                        .build())
+                .toList());
+        log.debug("Queued {} {} {} for search indexing", ids.size(), type, operation);
+
+        // индексатор не ждёт очередного опроса, события видны ему только после коммита
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    searchIndexer.wakeUp();
+                }
+            });
+        } else {
+            searchIndexer.wakeUp();
+        }
+    }
+
+    // строка сущности блокируется до коммита, следующее изменение получит версию больше этой
+    private void bumpSearchVersion(SearchEntityType type, Collection<Long> ids) {
+        if (type == SearchEntityType.MOVIE) {
+            movieRepository.bumpSearchVersion(ids);
+        } else {
+            userRepository.bumpSearchVersion(ids);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package ru.danilgordienko.film_storage.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Component;
+import ru.danilgordienko.film_storage.exception.SearchReindexRunningException;
+import ru.danilgordienko.film_storage.model.dto.IdRangeView;
+import ru.danilgordienko.film_storage.model.dto.SearchReindexStatusDto;
+import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
+import ru.danilgordienko.film_storage.model.entity.Movie;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+import ru.danilgordienko.film_storage.model.entity.UserDocument;
+import ru.danilgordienko.film_storage.model.enums.SearchEntityType;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.repository.UserRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Перестроение индекса Elasticsearch без простоя.
+ * Имя из @Document (movies, users) — псевдоним. Перестроение создаёт новый индекс movies_v<время>
+ * с текущими настройками и маппингом документа, загружает в него строки из бд (keyset-страницами,
+ * диапазон id делится между concurrency потоками) с отключённым refresh и без реплик,
+ * затем возвращает настройки и одной командой переключает псевдоним на новый индекс.
+ *
+ * Пока индекс строится, SearchIndexer пишет изменения и в него (buildingIndex),
+ * поэтому после переключения индекс не отстаёт от бд.
+ * При отмене или ошибке новый индекс удаляется, псевдоним не меняется.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchReindexer {
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final MovieRepository movieRepository;
+    private final UserRepository userRepository;
+    private final MovieMapping movieMapping;
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Value("${app.search.reindex.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.search.reindex.batch-size:1000}")
+    private int batchSize;
+
+    // настройки, которые получает индекс после загрузки
+    @Value("${app.search.reindex.replicas:1}")
+    private String replicas;
+
+    @Value("${app.search.reindex.refresh-interval:1s}")
+    private String refreshInterval;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExecutorService sliceWorkers;
+
+    // индексы, которые сейчас строятся
+    private final Map<SearchEntityType, String> building = new ConcurrentHashMap<>();
+
+    // прогресс текущего или последнего перестроения
+    private volatile Progress progress;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        sliceWorkers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "search-reindex-slice-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String aliasName(SearchEntityType type) {
+        return elasticsearchOperations.getIndexCoordinatesFor(documentClass(type)).getIndexName();
+    }
+
+    public Optional<String> buildingIndex(SearchEntityType type) {
+        return Optional.ofNullable(building.get(type));
+    }
+
+    /**
+     * Запускает перестроение индекса документов type в фоне.
+     *
+     * @throws SearchReindexRunningException если перестроение уже выполняется
+     */
+    public synchronized SearchReindexStatusDto start(SearchEntityType type) {
+        if (progress != null && progress.running) {
+            throw new SearchReindexRunningException("Reindex of " + progress.type + " is already running");
+        }
+        String alias = aliasName(type);
+        Progress started = new Progress(type, alias, alias + "_v" + LocalDateTime.now().format(VERSION_FORMAT));
+        progress = started;
+        dispatcher.execute(() -> reindex(started));
+        return started.toDto();
+    }
+
+    // отмена: потоки останавливаются после текущей страницы, новый индекс удаляется
+    public SearchReindexStatusDto cancel() {
+        Progress current = progress;
+        if (current != null && current.running) {
+            log.info("Cancelling reindex of {} into {}", current.type, current.index);
+            current.cancelled = true;
+        }
+        return getStatus();
+    }
+
+    public SearchReindexStatusDto getStatus() {
+        Progress current = progress;
+        if (current == null) {
+            return SearchReindexStatusDto.builder().build();
+        }
+        return current.toDto();
+    }
+
+    private void reindex(Progress progress) {
+        log.info("Reindexing {} into {}", progress.alias, progress.index);
+        try {
+            createIndex(progress);
+            // с этого момента изменения из outbox пишутся и в новый индекс
+            building.put(progress.type, progress.index);
+
+            IdRangeView range = progress.type == SearchEntityType.MOVIE
+                    ? movieRepository.findIdRange()
+                    : userRepository.findIdRange();
+            progress.docsTotal = progress.type == SearchEntityType.MOVIE ? movieRepository.count() : userRepository.count();
+            if (range.getMinId() != null) {
+                CompletableFuture.allOf(slices(range.getMinId() - 1, range.getMaxId()).stream()
+                        .map(slice -> CompletableFuture.runAsync(
+                                () -> loadSlice(progress, slice[0], slice[1]), sliceWorkers))
+                        .toArray(CompletableFuture[]::new))
+                        .join();
+            }
+            if (progress.cancelled) {
+                throw new CancellationException("Reindex cancelled");
+            }
+
+            restoreSettings(progress.index);
+            swapAlias(progress.alias, progress.index);
+            progress.completed = true;
+            log.info("Reindex of {} finished: {} documents, {} docs/s",
+                    progress.alias, progress.docsIndexed.get(), String.format("%.1f", progress.docsPerSecond()));
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (progress.cancelled) {
+                log.info("Reindex of {} cancelled after {} documents", progress.alias, progress.docsIndexed.get());
+            } else {
+                log.error("Reindex of {} failed: {}", progress.alias, cause.getMessage(), cause);
+                progress.lastError = cause.getMessage();
+            }
+            dropIndex(progress.index);
+        } finally {
+            building.remove(progress.type, progress.index);
+            progress.finish();
+        }
+    }
+
+    // (afterId, toId] делится на concurrency равных диапазонов
+    private List<long[]> slices(long afterId, long toId) {
+        long step = Math.max(1, (toId - afterId + concurrency - 1) / concurrency);
+        List<long[]> slices = new ArrayList<>();
+        for (long from = afterId; from < toId; from += step) {
+            slices.add(new long[]{from, Math.min(from + step, toId)});
+        }
+        return slices;
+    }
+
+    private void loadSlice(Progress progress, long afterId, long toId) {
+        long cursor = afterId;
+        while (!progress.isStopped()) {
+            SequencedMap<Long, Object> documents = loadPage(progress.type, cursor, toId);
+            if (documents.isEmpty()) {
+                return;
+            }
+            bulkCreate(progress, documents);
+            cursor = documents.lastEntry().getKey();
+            progress.docsIndexed.addAndGet(documents.size());
+            log.debug("Reindex of {}: {}/{} documents, {} docs/s", progress.alias, progress.docsIndexed.get(),
+                    progress.docsTotal, String.format("%.1f", progress.docsPerSecond()));
+        }
+    }
+
+    // документы страницы по возрастанию id
+    private SequencedMap<Long, Object> loadPage(SearchEntityType type, long afterId, long toId) {
+        PageRequest page = PageRequest.of(0, batchSize);
+        SequencedMap<Long, Object> documents = new LinkedHashMap<>();
+        if (type == SearchEntityType.MOVIE) {
+            for (Movie movie : movieRepository.findPageInRange(afterId, toId, page)) {
+                documents.put(movie.getId(), movieMapping.toMovieDocument(movie));
+            }
+        } else {
+            for (UserDocument user : userRepository.findDocumentsInRange(afterId, toId, page)) {
+                documents.put(user.getId(), user);
+            }
+        }
+        return documents;
+    }
+
+    // create не перезаписывает документ, который SearchIndexer уже записал из бд; 409 здесь не теряет изменений:
+    // всё, что изменилось после чтения SearchIndexer, ещё лежит в outbox и будет записано им же
+    private void bulkCreate(Progress progress, Map<Long, Object> documents) {
+        ElasticsearchConverter converter = elasticsearchOperations.getElasticsearchConverter();
+        List<BulkOperation> operations = new ArrayList<>(documents.size());
+        documents.forEach((id, document) -> {
+            Document source = converter.mapObject(document);
+            operations.add(BulkOperation.of(o -> o.create(c -> c
+                    .index(progress.index)
+                    .id(String.valueOf(id))
+                    .document(source))));
+        });
+        try {
+            BulkResponse response = elasticsearchClient.bulk(b -> b.operations(operations));
+            for (BulkResponseItem item : response.items()) {
+                if (item.error() != null && item.status() != 409) {
+                    throw new IllegalStateException("Failed to index document " + item.id() + ": "
+                            + item.error().reason());
+                }
+            }
+        } catch (IOException e) {
+            progress.failed = true;
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            progress.failed = true;
+            throw e;
+        }
+    }
+
+    private void createIndex(Progress progress) throws IOException {
+        IndexOperations definition = elasticsearchOperations.indexOps(documentClass(progress.type));
+        elasticsearchOperations.indexOps(IndexCoordinates.of(progress.index))
+                .create(definition.createSettings(), definition.createMapping());
+        // на время загрузки: без периодического refresh и без копирования на реплики
+        elasticsearchClient.indices().putSettings(p -> p
+                .index(progress.index)
+                .settings(s -> s
+                        .refreshInterval(t -> t.time("-1"))
+                        .numberOfReplicas("0")));
+    }
+
+    private void restoreSettings(String index) throws IOException {
+        elasticsearchClient.indices().putSettings(p -> p
+                .index(index)
+                .settings(s -> s
+                        .refreshInterval(t -> t.time(refreshInterval))
+                        .numberOfReplicas(replicas)));
+        elasticsearchClient.indices().refresh(r -> r.index(index));
+    }
+
+    // псевдоним снимается со старых индексов и добавляется новому одной командой
+    private void swapAlias(String alias, String index) throws IOException {
+        List<Action> actions = new ArrayList<>();
+        actions.add(Action.of(a -> a.add(add -> add.index(index).alias(alias))));
+        Set<String> previous = Set.of();
+        if (elasticsearchClient.indices().existsAlias(e -> e.name(alias)).value()) {
+            previous = elasticsearchClient.indices().getAlias(g -> g.name(alias)).result().keySet();
+            for (String old : previous) {
+                actions.add(Action.of(a -> a.remove(remove -> remove.index(old).alias(alias))));
+            }
+        } else if (elasticsearchClient.indices().exists(e -> e.index(alias)).value()) {
+            // до первого перестроения документы лежат в индексе с именем псевдонима
+            actions.add(Action.of(a -> a.removeIndex(remove -> remove.index(alias))));
+        }
+        elasticsearchClient.indices().updateAliases(u -> u.actions(actions));
+        log.info("Alias {} switched to {}", alias, index);
+
+        for (String old : previous) {
+            dropIndex(old);
+        }
+    }
+
+    private void dropIndex(String index) {
+        try {
+            elasticsearchOperations.indexOps(IndexCoordinates.of(index)).delete();
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete index {}: {}", index, e.getMessage());
+        }
+    }
+
+    private static Class<?> documentClass(SearchEntityType type) {
+        return type == SearchEntityType.MOVIE ? MovieDocument.class : UserDocument.class;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        sliceWorkers.shutdownNow();
+    }
+
+    private static final class Progress {
+        private final SearchEntityType type;
+        private final String alias;
+        private final String index;
+        private final long startNanos = System.nanoTime();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong docsIndexed = new AtomicLong();
+        private volatile long docsTotal;
+        private volatile boolean cancelled;
+        private volatile boolean failed;
+        private volatile boolean completed;
+        private volatile String lastError;
+        private volatile boolean running = true;
+        private volatile long finishNanos;
+        private volatile LocalDateTime finishedAt;
+
+        Progress(SearchEntityType type, String alias, String index) {
+            this.type = type;
+            this.alias = alias;
+            this.index = index;
+        }
+
+        // ошибка одного потока останавливает остальные
+        boolean isStopped() {
+            return cancelled || failed || Thread.currentThread().isInterrupted();
+        }
+
+        void finish() {
+            finishNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            running = false;
+        }
+
+        double docsPerSecond() {
+            long end = running ? System.nanoTime() : finishNanos;
+            double seconds = Math.max(1e-3, Duration.ofNanos(end - startNanos).toMillis() / 1000.0);
+            return docsIndexed.get() / seconds;
+        }
+
+        SearchReindexStatusDto toDto() {
+            return SearchReindexStatusDto.builder()
+                    .type(type)
+                    .alias(alias)
+                    .index(index)
+                    .running(running)
+                    .cancelled(cancelled)
+                    .completed(completed)
+                    .docsTotal(docsTotal)
+                    .docsIndexed(docsIndexed.get())
+                    .docsPerSecond(docsPerSecond())
+                    .lastError(lastError)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
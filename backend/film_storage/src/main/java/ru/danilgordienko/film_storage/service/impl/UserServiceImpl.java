@@ -9,6 +9,7 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -22,23 +23,32 @@ import ru.danilgordienko.film_storage.exception.ElasticsearchConnectionException
 import ru.danilgordienko.film_storage.exception.UserNotFoundException;
 import ru.danilgordienko.film_storage.exception.UserUpdateException;
 import ru.danilgordienko.film_storage.model.entity.User;
+import ru.danilgordienko.film_storage.model.entity.UserDocument;
 import ru.danilgordienko.film_storage.model.enums.RatingVisibility;
+import ru.danilgordienko.film_storage.repository.CursorPage;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
 import ru.danilgordienko.film_storage.repository.UserRepository;
 import ru.danilgordienko.film_storage.repository.UserSearchRepository;
+import ru.danilgordienko.film_storage.security.PrincipalCache;
 import ru.danilgordienko.film_storage.security.UserDetailsImpl;
 import ru.danilgordienko.film_storage.service.UserService;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 @Service
 @AllArgsConstructor
 @Slf4j
-public class UserServiceImpl implements UserService {
+public class UserServiceImpl implements UserService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
     private final UserMapping userMapping;
     private final UserSearchRepository userSearchRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final MovieRepository movieRepository;
+    private final SearchOutbox searchOutbox;
     private final int size = 20;
 
     //загрузка пользователей по username. нужен для spring security для авторизации пользователя
@@ -55,6 +65,23 @@ public class UserServiceImpl implements UserService {
         return UserDetailsImpl.build(user);
     }
 
+    // вызывается DaoAuthenticationProvider после успешного входа, если хеш пароля
+    // посчитан со старым cost фактором: сохраняем хеш с текущими настройками
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newEncodedPassword) {
+        try {
+            log.debug("Rehashing password for user: {}", userDetails.getUsername());
+            User user = getUserByEmail(userDetails.getUsername());
+            user.setPassword(newEncodedPassword);
+            userRepository.save(user);
+            return UserDetailsImpl.build(user);
+        } catch (DataAccessException e) {
+            log.error("Database save error", e);
+            throw new DatabaseConnectionException("Failed to save user in DB", e);
+        }
+    }
+
     //получение пользователей по username.
     @Override
     public User getUserByUsername(String username) {
@@ -110,14 +137,18 @@ public class UserServiceImpl implements UserService {
         }
     }
 
-    // поиск пользователя по имени из Elasticsearch
+    // поиск пользователя по имени из Elasticsearch: первые страницы по номеру, дальше по cursor
     @Override
-    public PageDto<UserListDto> searchUserByUsername(String query, int page){
+    public PageDto<UserListDto> searchUserByUsername(String query, int page, String cursor){
         try {
             log.debug("Searching users in Elasticsearch by username: {}", query);
-            Pageable pageable = PageRequest.of(page, size);
-            var searchResults = userSearchRepository.searchByUsernameContaining(query,  pageable);
-            return userMapping.toUserListDtoPageFromUserDocument(searchResults);
+            CursorPage<UserDocument> searchResults = cursor == null || cursor.isBlank()
+                    ? userSearchRepository.matchUsername(query, page, size)
+                    : userSearchRepository.matchUsernameAfter(query, cursor, size);
+            return new PageDto<>(searchResults.content().stream()
+                    .map(userMapping::toUserListDto)
+                    .toList(),
+                    searchResults.number(), searchResults.totalElements(), searchResults.cursor());
         } catch (ElasticsearchException | RestClientException e) {
             log.error("Elasticsearch access error", e);
             throw new ElasticsearchConnectionException("Failed to search user in Elasticsearch", e);
@@ -159,9 +190,19 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void deleteUser(Long id) {
-        if(userRepository.existsById(id)){
+        var user = userRepository.findById(id);
+        if(user.isPresent()){
+            // оценки пользователя удаляются каскадно, вычитаем их из счётчиков фильмов
+            Set<Long> ratedMovieIds = new HashSet<>();
+            user.get().getRatings().forEach(rating -> {
+                movieRepository.applyRatingDelta(rating.getMovie().getId(), rating.getRating(), -1);
+                ratedMovieIds.add(rating.getMovie().getId());
+            });
             userRepository.deleteById(id);
-            userSearchRepository.deleteById(id);
+            searchOutbox.deleteUser(id);
+            // средняя оценка этих фильмов в Elasticsearch изменилась
+            searchOutbox.indexMovies(ratedMovieIds);
+            principalCache.evict(user.get().getEmail());
             return;
         }
         throw new UserNotFoundException("User with id " + id + " does not exist");
@@ -176,10 +217,17 @@ public class UserServiceImpl implements UserService {
             User user = getUserByEmail(username);
             System.out.println("DTO class: " + userProfileUpdateDto.getClass());
 
-            if (userProfileUpdateDto.getEmail() != null)
+            if (userProfileUpdateDto.getEmail() != null) {
+                // principal закэширован по старому email
+                principalCache.evict(user.getEmail());
                 user.setEmail(userProfileUpdateDto.getEmail());
-            if (userProfileUpdateDto.getUsername() != null)
+            }
+            // в индексе пользователей хранится имя, переименованного пользователя переиндексируем
+            if (userProfileUpdateDto.getUsername() != null
+                    && !userProfileUpdateDto.getUsername().equals(user.getUsername())) {
                 user.setUsername(userProfileUpdateDto.getUsername());
+                searchOutbox.indexUser(user.getId());
+            }
             if (avatar != null && !avatar.isEmpty()) {
                 user.setAvatar(avatar.getBytes());
             }
@@ -207,6 +255,7 @@ public class UserServiceImpl implements UserService {
             final String encodedPassword = passwordEncoder.encode(userChangePasswordDto.getNewPassword());
             savedUser.setPassword(encodedPassword);
             userRepository.save(savedUser);
+            principalCache.evict(savedUser.getEmail());
         } catch (DataAccessException e) {
             log.error("Database save error", e);
             throw new DatabaseConnectionException("Failed to save user in DB", e);
@@ -0,0 +1,13 @@
+package ru.danilgordienko.film_storage.storage;
+
+import java.nio.file.Path;
+
+/**
+ * Постер в локальном хранилище.
+ *
+ * @param hash SHA-256 содержимого, используется как ETag
+ * @param path путь к файлу
+ * @param size размер в байтах
+ */
+public record PosterFile(String hash, Path path, long size) {
+}
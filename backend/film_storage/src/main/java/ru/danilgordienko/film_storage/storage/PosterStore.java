@@ -0,0 +1,94 @@
+package ru.danilgordienko.film_storage.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.danilgordienko.film_storage.exception.PosterStorageException;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Локальное хранилище постеров с адресацией по содержимому.
+ * Файл называется SHA-256 своих байт и лежит в каталоге ab/cd/ по первым байтам хеша,
+ * поэтому одинаковые постеры хранятся один раз, а файл после записи никогда не меняется.
+ */
+@Component
+@Slf4j
+public class PosterStore {
+
+    private static final String EXTENSION = ".jpg";
+
+    @Value("${app.posters.dir:./data/posters}")
+    private Path root;
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(root);
+        log.info("Poster store directory: {}", root.toAbsolutePath());
+    }
+
+    // ищет постер по хешу содержимого
+    public Optional<PosterFile> find(String hash) {
+        if (hash == null) {
+            return Optional.empty();
+        }
+        Path path = resolve(hash);
+        try {
+            return Optional.of(new PosterFile(hash, path, Files.size(path)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new PosterStorageException("Failed to read poster " + hash, e);
+        }
+    }
+
+    /**
+     * Сохраняет постер и возвращает его описание.
+     * Запись идёт во временный файл с атомарным переименованием,
+     * поэтому читатели никогда не видят недописанный файл.
+     */
+    public PosterFile store(byte[] bytes) {
+        String hash = sha256(bytes);
+        Path path = resolve(hash);
+        if (Files.exists(path)) {
+            return new PosterFile(hash, path, bytes.length);
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), hash, ".tmp");
+            try {
+                Files.write(tmp, bytes);
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            log.debug("Stored poster {} ({} bytes)", hash, bytes.length);
+            return new PosterFile(hash, path, bytes.length);
+        } catch (FileAlreadyExistsException e) {
+            // тот же постер параллельно записал другой поток
+            return new PosterFile(hash, path, bytes.length);
+        } catch (IOException e) {
+            throw new PosterStorageException("Failed to store poster " + hash, e);
+        }
+    }
+
+    private Path resolve(String hash) {
+        return root.resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4))
+                .resolve(hash + EXTENSION);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:030-store-token-digests
+-- вместо самого JWT храним его SHA-256 (64 hex символа) и время истечения
+ALTER TABLE access_tokens
+    ADD COLUMN token_hash VARCHAR(64),
+    ADD COLUMN expires_at TIMESTAMP WITHOUT TIME ZONE;
+
+ALTER TABLE refresh_tokens
+    ADD COLUMN token_hash VARCHAR(64),
+    ADD COLUMN expires_at TIMESTAMP WITHOUT TIME ZONE;
+
+-- exp берём из payload токена (base64url -> json), время в UTC
+UPDATE access_tokens
+SET token_hash = encode(sha256(convert_to(token, 'UTF8')), 'hex'),
+    expires_at = to_timestamp((convert_from(decode(
+            translate(split_part(token, '.', 2), '-_', '+/')
+                || repeat('=', (4 - length(split_part(token, '.', 2)) % 4) % 4),
+            'base64'), 'UTF8')::json ->> 'exp')::BIGINT) AT TIME ZONE 'UTC';
+
+UPDATE refresh_tokens
+SET token_hash = encode(sha256(convert_to(token, 'UTF8')), 'hex'),
+    expires_at = to_timestamp((convert_from(decode(
+            translate(split_part(token, '.', 2), '-_', '+/')
+                || repeat('=', (4 - length(split_part(token, '.', 2)) % 4) % 4),
+            'base64'), 'UTF8')::json ->> 'exp')::BIGINT) AT TIME ZONE 'UTC';
+
+-- уже просроченные токены больше не нужны
+DELETE FROM access_tokens WHERE expires_at < (now() AT TIME ZONE 'UTC');
+DELETE FROM refresh_tokens WHERE expires_at < (now() AT TIME ZONE 'UTC');
+
+ALTER TABLE access_tokens
+    DROP CONSTRAINT uc_access_tokens_token,
+    DROP COLUMN token,
+    ALTER COLUMN token_hash SET NOT NULL,
+    ALTER COLUMN expires_at SET NOT NULL,
+    ADD CONSTRAINT uc_access_tokens_token_hash UNIQUE (token_hash);
+
+ALTER TABLE refresh_tokens
+    DROP CONSTRAINT uc_refresh_tokens_token,
+    DROP COLUMN token,
+    ALTER COLUMN token_hash SET NOT NULL,
+    ALTER COLUMN expires_at SET NOT NULL,
+    ADD CONSTRAINT uc_refresh_tokens_token_hash UNIQUE (token_hash);
+
+CREATE INDEX idx_access_tokens_expires_at ON access_tokens (expires_at);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
+CREATE INDEX idx_access_tokens_user_id ON access_tokens (user_id);
+CREATE INDEX idx_refresh_tokens_user_id ON refresh_tokens (user_id);
@@ -0,0 +1,27 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:040-movie-rating-aggregates
+-- денормализованные счётчики оценок: число, сумма и гистограмма по баллам 1..10
+ALTER TABLE movies
+    ADD COLUMN rating_count     INTEGER   NOT NULL DEFAULT 0,
+    ADD COLUMN rating_sum       BIGINT    NOT NULL DEFAULT 0,
+    ADD COLUMN rating_histogram INTEGER[] NOT NULL DEFAULT array_fill(0, ARRAY [10]);
+
+-- заполняем по уже существующим оценкам
+UPDATE movies m
+SET rating_count     = agg.cnt,
+    rating_sum       = agg.total,
+    rating_histogram = agg.histogram
+FROM (SELECT r.movie_id,
+             COUNT(*)                                    AS cnt,
+             SUM(r.rating)                               AS total,
+             ARRAY(SELECT COUNT(r2.id)::INTEGER
+                   FROM generate_series(1, 10) AS score
+                            LEFT JOIN ratings r2 ON r2.movie_id = r.movie_id AND r2.rating = score
+                   GROUP BY score
+                   ORDER BY score)                       AS histogram
+      FROM ratings r
+      GROUP BY r.movie_id) agg
+WHERE m.id = agg.movie_id;
+
+CREATE INDEX IF NOT EXISTS idx_ratings_movie_id ON ratings (movie_id);
@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:050-movie-poster-hash
+-- SHA-256 постера в локальном хранилище (PosterStore), NULL пока постер не скачан
+ALTER TABLE movies
+    ADD COLUMN poster_hash VARCHAR(64);
@@ -0,0 +1,19 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:060-movie-poster-variants
+-- скачанные постеры по размерам (w92, w185, w500), хеш указывает на файл в PosterStore
+CREATE TABLE movie_poster_variants (
+    movie_id    BIGINT      NOT NULL REFERENCES movies (id) ON DELETE CASCADE,
+    size        VARCHAR(8)  NOT NULL,
+    poster_hash VARCHAR(64) NOT NULL,
+    PRIMARY KEY (movie_id, size)
+);
+
+-- до этого скачивался только w500
+INSERT INTO movie_poster_variants (movie_id, size, poster_hash)
+SELECT id, 'w500', poster_hash
+FROM movies
+WHERE poster_hash IS NOT NULL;
+
+ALTER TABLE movies
+    DROP COLUMN poster_hash;
@@ -0,0 +1,25 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:070-catalog-bootstrap
+-- запуски первоначальной загрузки каталога; finished_at IS NULL — запуск не завершён и продолжится после рестарта
+CREATE TABLE catalog_bootstrap_runs
+(
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    from_page   INTEGER                                 NOT NULL,
+    to_page     INTEGER                                 NOT NULL,
+    started_at  TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    finished_at TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_catalog_bootstrap_runs PRIMARY KEY (id)
+);
+
+-- сохранённые страницы запуска, запись добавляется в той же транзакции, что и фильмы страницы
+CREATE TABLE catalog_bootstrap_pages
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    run_id       BIGINT                                  NOT NULL REFERENCES catalog_bootstrap_runs (id) ON DELETE CASCADE,
+    page         INTEGER                                 NOT NULL,
+    movies       INTEGER                                 NOT NULL,
+    completed_at TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    CONSTRAINT pk_catalog_bootstrap_pages PRIMARY KEY (id),
+    CONSTRAINT uq_catalog_bootstrap_pages_run_page UNIQUE (run_id, page)
+);
@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:080-movie-tmdb-id
+-- id фильма в TMDB: ключ INSERT ... ON CONFLICT при повторной загрузке фильмов.
+-- У уже сохранённых фильмов остаётся NULL, уникальность на них не распространяется
+ALTER TABLE movies
+    ADD COLUMN tmdb_id BIGINT;
+
+CREATE UNIQUE INDEX uq_movies_tmdb_id ON movies (tmdb_id);
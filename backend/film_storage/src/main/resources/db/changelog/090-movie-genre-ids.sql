@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:090-movie-genre-ids
+-- id жанров фильма массивом прямо в строке movies: списки фильмов получают названия жанров
+-- из справочника в памяти без join с movie_genres. movie_genres остаётся для запросов по жанру
+ALTER TABLE movies
+    ADD COLUMN genre_ids BIGINT[] NOT NULL DEFAULT '{}';
+
+UPDATE movies m
+SET genre_ids = g.ids
+FROM (SELECT movie_id, array_agg(genre_id ORDER BY genre_id) AS ids
+      FROM movie_genres
+      GROUP BY movie_id) g
+WHERE g.movie_id = m.id;
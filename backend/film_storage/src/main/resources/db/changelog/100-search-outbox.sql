@@ -0,0 +1,21 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:100-search-outbox
+--validCheckSum: ANY
+-- изменения, которые нужно перенести в Elasticsearch. Строка пишется в транзакции изменения,
+-- SearchIndexer выбирает строки пачками и удаляет их после успешной записи в индекс.
+-- Внешняя версия документа — search_version сущности (150-search-version), id строки только задаёт порядок
+CREATE TABLE search_outbox
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    entity_type     VARCHAR(16)                             NOT NULL,
+    entity_id       BIGINT                                  NOT NULL,
+    operation       VARCHAR(16)                             NOT NULL,
+    created_at      TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    attempts        INTEGER                                 NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    last_error      VARCHAR(1000),
+    CONSTRAINT pk_search_outbox PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_search_outbox_next_attempt ON search_outbox (next_attempt_at, id);
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:110-movie-poster-missing
+-- строка варианта без хеша: TMDB ответил, что постера этого размера нет (404).
+-- Такие фильмы не попадают в фоновую загрузку и не запрашиваются у film_fetcher повторно,
+-- пока не изменится movies.poster
+ALTER TABLE movie_poster_variants
+    ALTER COLUMN poster_hash DROP NOT NULL;
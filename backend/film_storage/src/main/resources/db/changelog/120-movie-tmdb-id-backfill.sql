@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:120-movie-tmdb-id-backfill
+-- фильмы без tmdb_id получают его при загрузке каталога по совпадению названия и даты выхода
+-- (MovieBulkRepositoryImpl); индекс только по таким строкам, после сопоставления он пустеет
+CREATE INDEX idx_movies_without_tmdb_id ON movies (title, release_date) WHERE tmdb_id IS NULL;
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:130-movie-poster-missing-at
+-- время отметки об отсутствии постера: отметка действует app.posters.missing.ttl,
+-- потом размер снова запрашивается у TMDB (404 мог быть временным сбоем CDN)
+ALTER TABLE movie_poster_variants
+    ADD COLUMN missing_at TIMESTAMP;
+
+-- старые отметки считаются поставленными сейчас
+UPDATE movie_poster_variants
+SET missing_at = now()
+WHERE poster_hash IS NULL;
@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:140-catalog-bootstrap-page-failures
+-- неудачные попытки загрузить страницу; после app.catalog.bootstrap.max-page-attempts попыток
+-- страница больше не запрашивается, и запуск закрывается с ошибками, а не продолжается после каждого рестарта
+CREATE TABLE catalog_bootstrap_page_failures
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    run_id     BIGINT                                  NOT NULL REFERENCES catalog_bootstrap_runs (id) ON DELETE CASCADE,
+    page       INTEGER                                 NOT NULL,
+    attempts   INTEGER                                 NOT NULL,
+    last_error TEXT,
+    failed_at  TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    CONSTRAINT pk_catalog_bootstrap_page_failures PRIMARY KEY (id),
+    CONSTRAINT uq_catalog_bootstrap_page_failures_run_page UNIQUE (run_id, page)
+);
+
+-- число страниц, так и не загруженных закрытым запуском
+ALTER TABLE catalog_bootstrap_runs
+    ADD COLUMN failed_pages INTEGER NOT NULL DEFAULT 0;
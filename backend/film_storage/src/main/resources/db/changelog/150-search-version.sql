@@ -0,0 +1,25 @@
+--liquibase formatted sql
+
+--changeset danilgordienko:150-search-version
+-- внешняя версия документа Elasticsearch. Изменение сущности получает номер из search_version_seq
+-- в той же транзакции, что и событие outbox: обновление строки ждёт блокировку предыдущего изменения,
+-- поэтому версии одной сущности растут в порядке коммита. Удалённой сущности версию хранит событие DELETE
+CREATE SEQUENCE search_version_seq;
+
+-- документы, записанные раньше (с внутренней версией или с id события outbox как версией),
+-- должны уступать любой новой версии
+SELECT setval('search_version_seq', nextval(pg_get_serial_sequence('search_outbox', 'id')) + 1000000);
+
+ALTER TABLE movies
+    ADD COLUMN search_version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE users
+    ADD COLUMN search_version BIGINT NOT NULL DEFAULT 0;
+
+-- версия удаления; у событий INDEX NULL, версию даёт строка сущности
+ALTER TABLE search_outbox
+    ADD COLUMN version BIGINT;
+
+UPDATE search_outbox
+SET version = nextval('search_version_seq')
+WHERE operation = 'DELETE';
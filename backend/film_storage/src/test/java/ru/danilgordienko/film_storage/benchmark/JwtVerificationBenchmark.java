@@ -0,0 +1,102 @@
+package ru.danilgordienko.film_storage.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.danilgordienko.film_storage.repository.AccessTokenRepository;
+import ru.danilgordienko.film_storage.repository.RefreshTokenRepository;
+import ru.danilgordienko.film_storage.security.JWTCore;
+import ru.danilgordienko.film_storage.security.TokenStateStore;
+import ru.danilgordienko.film_storage.security.UserDetailsImpl;
+import ru.danilgordienko.film_storage.security.VerifiedToken;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Сравнивает стоимость проверки access токена в JWTAuthenticationFilter:
+ * старый путь (три разбора токена, каждый раз новый ключ и парсер)
+ * и новый (один разбор заранее собранным парсером).
+ * Хранилище состояния токенов заглушено, поэтому измеряется только работа с JWT.
+ *
+ * Запуск: mvn test-compile, затем main этого класса с test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private String secret;
+    private String token;
+    private JWTCore jwtCore;
+
+    @Setup
+    public void setup() {
+        secret = Encoders.BASE64.encode(Keys.secretKeyFor(io.jsonwebtoken.SignatureAlgorithm.HS256).getEncoded());
+
+        TokenStateStore tokenStateStore = mock(TokenStateStore.class);
+        when(tokenStateStore.resolve(anyString(), any(), any()))
+                .thenReturn(Optional.of(TokenStateStore.TokenState.ACTIVE));
+
+        jwtCore = new JWTCore(mock(RefreshTokenRepository.class), mock(AccessTokenRepository.class), tokenStateStore);
+        ReflectionTestUtils.setField(jwtCore, "secret", secret);
+        ReflectionTestUtils.setField(jwtCore, "accessExpiration", 3_600_000);
+        ReflectionTestUtils.setField(jwtCore, "refreshExpiration", 86_400_000);
+        ReflectionTestUtils.invokeMethod(jwtCore, "initSigningKey");
+
+        token = jwtCore.generateAccessToken(
+                new UserDetailsImpl(1L, "user@mail.ru", "user", "password", Set.of("USER")));
+    }
+
+    // повторяет прежнюю реализацию getClaimsFromToken
+    private Claims legacyClaims(String token) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public void legacyFilter(Blackhole bh) {
+        String type = legacyClaims(token).get("token_type", String.class);
+        boolean expired = legacyClaims(token).getExpiration().before(new Date());
+        String email = legacyClaims(token).get("email", String.class);
+        bh.consume(type);
+        bh.consume(expired);
+        bh.consume(email);
+    }
+
+    @Benchmark
+    public void singlePassFilter(Blackhole bh) {
+        VerifiedToken verifiedToken = jwtCore.verifyToken(token);
+        jwtCore.validateToken(verifiedToken);
+        bh.consume(verifiedToken.email());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,164 @@
+package ru.danilgordienko.film_storage.benchmark;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.index.MappingBuilder;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка поиска фильма по названию до и после явного маппинга.
+ * Нужен запущенный Elasticsearch: адрес берётся из -Des.url (по умолчанию http://localhost:9200).
+ *
+ * В оба индекса загружаются одни и те же movieCount фильмов со случайными названиями.
+ * wildcardDynamic — прежний findByTitleContaining: query_string *query* по динамическому маппингу,
+ * перебирает весь словарь терминов.
+ * matchMapped — MovieSearchQueryRepositoryImpl.matchTitle по маппингу из MovieDocument
+ * и movie-settings.json: префиксы уже лежат в title.prefix, запрос — поиск термина.
+ *
+ * Запуск: mvn test-compile, затем main этого класса с test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class MovieSearchBenchmark {
+
+    private static final String DYNAMIC_INDEX = "bench_movies_dynamic";
+    private static final String MAPPED_INDEX = "bench_movies_mapped";
+    private static final int BULK_SIZE = 5000;
+
+    private static final String[] WORDS = {
+            "матрица", "война", "звёздные", "мир", "последний", "охотник", "тёмный", "рыцарь",
+            "возвращение", "короля", "побег", "шоушенка", "зелёная", "миля", "интерстеллар", "начало",
+            "star", "wars", "lord", "rings", "dark", "knight", "return", "king", "hunter", "last"
+    };
+    private static final String[] GENRES = {"Боевик", "Драма", "Комедия", "Фантастика", "Триллер", "Ужасы"};
+
+    @Param({"100000"})
+    private int movieCount;
+
+    @Param({"мат", "звездн", "тёмный рыцарь"})
+    private String query;
+
+    private RestClient restClient;
+    private ElasticsearchClient client;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        restClient = RestClient.builder(HttpHost.create(System.getProperty("es.url", "http://localhost:9200")))
+                .build();
+        client = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+
+        recreate(DYNAMIC_INDEX, null);
+        recreate(MAPPED_INDEX, "{\"settings\": " + readSettings() + ", \"mappings\": " + buildMapping() + "}");
+        load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.indices().delete(d -> d.index(DYNAMIC_INDEX, MAPPED_INDEX).ignoreUnavailable(true));
+        restClient.close();
+    }
+
+    @Benchmark
+    public long wildcardDynamic() throws IOException {
+        return client.search(s -> s
+                        .index(DYNAMIC_INDEX)
+                        .size(20)
+                        .query(q -> q.queryString(qs -> qs
+                                .query("*" + query + "*")
+                                .fields("title")
+                                .analyzeWildcard(true))),
+                Map.class).hits().total().value();
+    }
+
+    @Benchmark
+    public long matchMapped() throws IOException {
+        return client.search(s -> s
+                        .index(MAPPED_INDEX)
+                        .size(20)
+                        .query(q -> q.multiMatch(m -> m
+                                .query(query)
+                                .fields("title^2", "title.prefix")
+                                .type(TextQueryType.MostFields)
+                                .operator(Operator.And))),
+                Map.class).hits().total().value();
+    }
+
+    private void recreate(String index, String body) throws IOException {
+        client.indices().delete(d -> d.index(index).ignoreUnavailable(true));
+        if (body == null) {
+            client.indices().create(c -> c.index(index));
+        } else {
+            client.indices().create(c -> c.index(index).withJson(new StringReader(body)));
+        }
+    }
+
+    // маппинг, который Spring Data строит по аннотациям MovieDocument
+    private static String buildMapping() {
+        return new MappingBuilder(new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext()))
+                .buildPropertyMapping(MovieDocument.class);
+    }
+
+    private static String readSettings() throws IOException {
+        try (InputStream in = MovieSearchBenchmark.class.getResourceAsStream("/elasticsearch/movie-settings.json")) {
+            return new String(Objects.requireNonNull(in).readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void load() throws IOException {
+        Random random = new Random(42);
+        BulkRequest.Builder bulk = new BulkRequest.Builder();
+        for (int id = 1; id <= movieCount; id++) {
+            Map<String, Object> movie = movie(id, random);
+            String docId = String.valueOf(id);
+            bulk.operations(o -> o.index(i -> i.index(DYNAMIC_INDEX).id(docId).document(movie)));
+            bulk.operations(o -> o.index(i -> i.index(MAPPED_INDEX).id(docId).document(movie)));
+            if (id % BULK_SIZE == 0 || id == movieCount) {
+                client.bulk(bulk.build());
+                bulk = new BulkRequest.Builder();
+            }
+        }
+        client.indices().refresh(r -> r.index(DYNAMIC_INDEX, MAPPED_INDEX));
+    }
+
+    private static Map<String, Object> movie(long id, Random random) {
+        StringJoiner title = new StringJoiner(" ");
+        for (int i = 0, words = 1 + random.nextInt(4); i < words; i++) {
+            title.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return Map.of(
+                "id", id,
+                "title", title.toString(),
+                "release_date", 315532800000L + (long) random.nextInt(16_000) * 86_400_000L,
+                "genres", List.of(GENRES[random.nextInt(GENRES.length)]),
+                "averageRating", Math.round(random.nextDouble() * 100) / 10.0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MovieSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
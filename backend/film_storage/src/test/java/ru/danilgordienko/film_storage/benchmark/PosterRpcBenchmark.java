@@ -0,0 +1,93 @@
+package ru.danilgordienko.film_storage.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Сколько одновременных промахов постера держит один узел.
+ * Модель: 200 потоков Tomcat (server.tomcat.threads.max по умолчанию), ответ film_fetcher
+ * приходит через 100 мс. Измеряется время, за которое обслуживаются все concurrentMisses запросов.
+ *
+ * blockingRpc повторяет convertSendAndReceive: поток запроса ждёт ответа,
+ * поэтому запросы сверх 200 стоят в очереди и время растёт линейно.
+ * asyncRpc повторяет AsyncRabbitTemplate + CompletableFuture: поток только отправляет запрос,
+ * все промахи висят одновременно и время остаётся около одной задержки RPC.
+ *
+ * Запуск: mvn test-compile, затем main этого класса с test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PosterRpcBenchmark {
+
+    private static final int REQUEST_THREADS = 200;
+    private static final long RPC_LATENCY_MS = 100;
+    private static final byte[] POSTER = new byte[64 * 1024];
+
+    @Param({"200", "1000", "5000"})
+    private int concurrentMisses;
+
+    private ExecutorService requestThreads;
+    private Executor broker;
+
+    @Setup
+    public void setup() {
+        requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        broker = CompletableFuture.delayedExecutor(RPC_LATENCY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        requestThreads.shutdownNow();
+    }
+
+    // ответ film_fetcher через RPC_LATENCY_MS
+    private CompletableFuture<byte[]> rpc() {
+        return CompletableFuture.supplyAsync(() -> POSTER, broker);
+    }
+
+    @Benchmark
+    public int blockingRpc() throws Exception {
+        List<Future<byte[]>> responses = new ArrayList<>(concurrentMisses);
+        for (int i = 0; i < concurrentMisses; i++) {
+            responses.add(requestThreads.submit(() -> rpc().join()));
+        }
+        int bytes = 0;
+        for (Future<byte[]> response : responses) {
+            bytes += response.get().length;
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public int asyncRpc() throws Exception {
+        List<Future<CompletableFuture<byte[]>>> submitted = new ArrayList<>(concurrentMisses);
+        for (int i = 0; i < concurrentMisses; i++) {
+            submitted.add(requestThreads.submit(this::rpc));
+        }
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>(concurrentMisses);
+        for (Future<CompletableFuture<byte[]>> future : submitted) {
+            responses.add(future.get());
+        }
+        int bytes = 0;
+        for (CompletableFuture<byte[]> response : responses) {
+            bytes += response.join().length;
+        }
+        return bytes;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PosterRpcBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,113 @@
+package ru.danilgordienko.film_storage.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.danilgordienko.film_storage.model.entity.Movie;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MovieBulkRepositoryImpl на настоящем Postgres со схемой из Liquibase:
+ * H2 не поддерживает ON CONFLICT ... WHERE, DISTINCT ON и bigint[].
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+public class MovieBulkUpsertTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    private static final Date RELEASED = Timestamp.valueOf(LocalDateTime.of(2020, 5, 1, 0, 0));
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testUnchangedMoviesAreNotReturnedAgain() {
+        List<Long> inserted = movieRepository.upsertAll(List.of(movie(1L, "First", "/1.jpg"),
+                movie(2L, "Second", "/2.jpg")));
+        List<Long> repeated = movieRepository.upsertAll(List.of(movie(1L, "First", "/1.jpg"),
+                movie(2L, "Second", "/2.jpg")));
+
+        assertEquals(2, inserted.size());
+        assertTrue(repeated.isEmpty());
+    }
+
+    @Test
+    void testChangedPosterDeletesDownloadedVariants() {
+        movieRepository.upsertAll(List.of(movie(1L, "First", "/1.jpg"), movie(2L, "Second", "/2.jpg")));
+        Long first = idOf(1L);
+        Long second = idOf(2L);
+        saveVariant(first);
+        saveVariant(second);
+
+        // у первого сменился постер, у второго только название
+        List<Long> changed = movieRepository.upsertAll(List.of(movie(1L, "First", "/1-new.jpg"),
+                movie(2L, "Second (director's cut)", "/2.jpg")));
+
+        assertEquals(List.of(first, second), changed.stream().sorted().toList());
+        assertEquals(0, countVariants(first));
+        assertEquals(1, countVariants(second));
+    }
+
+    @Test
+    void testLegacyRowWithoutTmdbIdIsAdopted() {
+        Movie legacy = movie(null, "Legacy", "/legacy.jpg");
+        movieRepository.saveAndFlush(legacy);
+
+        List<Long> changed = movieRepository.upsertAll(List.of(movie(10L, "Legacy", "/legacy.jpg")));
+
+        // строка получила tmdb_id и не продублировалась; поля не изменились, индексировать нечего
+        assertTrue(changed.isEmpty());
+        assertEquals(legacy.getId(), idOf(10L));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM movies", Integer.class));
+    }
+
+    private Movie movie(Long tmdbId, String title, String poster) {
+        Movie movie = new Movie();
+        movie.setTmdbId(tmdbId);
+        movie.setTitle(title);
+        movie.setDescription(title + " description");
+        movie.setRelease_date(RELEASED);
+        movie.setPoster(poster);
+        return movie;
+    }
+
+    private Long idOf(Long tmdbId) {
+        return jdbcTemplate.queryForObject("SELECT id FROM movies WHERE tmdb_id = ?", Long.class, tmdbId);
+    }
+
+    private void saveVariant(Long movieId) {
+        jdbcTemplate.update("INSERT INTO movie_poster_variants (movie_id, size, poster_hash) VALUES (?, 'w185', ?)",
+                movieId, "hash-" + movieId);
+    }
+
+    private int countVariants(Long movieId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM movie_poster_variants WHERE movie_id = ?",
+                Integer.class, movieId);
+    }
+}
@@ -0,0 +1,137 @@
+package ru.danilgordienko.film_storage.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieListCacheDto;
+import ru.danilgordienko.film_storage.model.dto.PageDto;
+import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
+import ru.danilgordienko.film_storage.model.entity.Genre;
+import ru.danilgordienko.film_storage.model.entity.Movie;
+import ru.danilgordienko.film_storage.model.entity.Rating;
+import ru.danilgordienko.film_storage.model.entity.User;
+import ru.danilgordienko.film_storage.service.impl.GenreDictionary;
+import ru.danilgordienko.film_storage.service.impl.MovieServiceImpl;
+import ru.danilgordienko.film_storage.service.impl.SearchOutbox;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Регрессионный тест пагинации фильмов: страница должна загружать из бд
+ * количество строк, пропорциональное размеру страницы, а не всему каталогу.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class MoviePageQueryTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int MOVIES = 100;
+    private static final int RATINGS_PER_MOVIE = 5;
+    // запас на жанры, которые грузятся вместе с фильмами
+    private static final int ROWS_PER_MOVIE = 2;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    private MovieServiceImpl movieService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        Genre drama = genreRepository.save(Genre.builder().tmdbId(18L).name("Drama").build());
+        Genre comedy = genreRepository.save(Genre.builder().tmdbId(35L).name("Comedy").build());
+
+        // справочник загружается до сброса статистики, как при старте приложения
+        GenreDictionary genreDictionary = new GenreDictionary(genreRepository);
+        genreDictionary.reload();
+        MovieMapping movieMapping = Mappers.getMapper(MovieMapping.class);
+        ReflectionTestUtils.setField(movieMapping, "genreDictionary", genreDictionary);
+        movieService = new MovieServiceImpl(movieRepository, genreDictionary,
+                movieMapping, mock(MovieSearchRepository.class), mock(SearchOutbox.class),
+                new ObjectMapper(), mock(ApplicationEventPublisher.class));
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < RATINGS_PER_MOVIE; i++) {
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setEmail("user" + i + "@mail.ru");
+            user.setPassword("password");
+            entityManager.persist(user);
+            users.add(user);
+        }
+
+        for (int i = 0; i < MOVIES; i++) {
+            Movie movie = new Movie();
+            movie.setTitle(String.format("Movie %03d", i));
+            movie.setGenres(Set.of(drama, comedy));
+            movie.setGenreIds(new long[]{drama.getId(), comedy.getId()});
+            movie.setRatingCount(RATINGS_PER_MOVIE);
+            movie.setRatingSum((long) RATINGS_PER_MOVIE * (i % 2 == 0 ? 4 : 5));
+            entityManager.persist(movie);
+            for (User user : users) {
+                entityManager.persist(Rating.builder()
+                        .movie(movie)
+                        .user(user)
+                        .rating(i % 2 == 0 ? 4 : 5)
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testPageLoadsRowsProportionalToPageSize() {
+        PageDto<MovieListCacheDto> page = movieService.getMoviesPage(1);
+
+        assertEquals(PAGE_SIZE, page.getContent().size());
+        assertEquals(MOVIES, page.getTotalElements());
+        assertTrue(statistics.getEntityLoadCount() <= (long) PAGE_SIZE * ROWS_PER_MOVIE,
+                "page loaded " + statistics.getEntityLoadCount() + " entities");
+        assertEquals(0, statistics.getEntityStatistics(Rating.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+        // id страницы, count, фильмы; жанры берутся из справочника
+        assertTrue(statistics.getPrepareStatementCount() <= 3,
+                "page executed " + statistics.getPrepareStatementCount() + " statements");
+    }
+
+    @Test
+    void testPageKeepsSortOrderAndRatings() {
+        PageDto<MovieListCacheDto> page = movieService.getMoviesPage(0);
+
+        List<String> titles = page.getContent().stream().map(MovieListCacheDto::getTitle).toList();
+        assertEquals(titles.stream().sorted(Comparator.naturalOrder()).toList(), titles);
+        assertEquals("Movie 000", titles.getFirst());
+        assertEquals(4.0, page.getContent().get(0).getRating());
+        assertEquals(5.0, page.getContent().get(1).getRating());
+        assertEquals(2, page.getContent().get(0).getGenres().size());
+    }
+}
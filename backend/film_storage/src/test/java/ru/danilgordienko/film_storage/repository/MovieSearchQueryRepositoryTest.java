@@ -0,0 +1,129 @@
+package ru.danilgordienko.film_storage.repository;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.CalendarInterval;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.DateRangeQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.NumberRangeQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import ru.danilgordienko.film_storage.model.dto.MovieSearchCriteria;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class MovieSearchQueryRepositoryTest {
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private SearchAfterPager searchAfterPager;
+
+    private MovieSearchQueryRepositoryImpl repository;
+
+    @BeforeEach
+    void setup() {
+        repository = new MovieSearchQueryRepositoryImpl(elasticsearchOperations, searchAfterPager);
+    }
+
+    @Test
+    void testFiltersGoToFilterContext() {
+        BoolQuery bool = sentQuery(MovieSearchCriteria.builder()
+                .query("матрица")
+                .genres(List.of("Drama", "Comedy"))
+                .yearFrom(1990)
+                .yearTo(1999)
+                .ratingFrom(7.5)
+                .ratingTo(9.0)
+                .build()).bool();
+
+        // текст влияет на score, фильтры нет
+        assertEquals(1, bool.must().size());
+        assertEquals("матрица", bool.must().get(0).multiMatch().query());
+        assertEquals(3, bool.filter().size());
+
+        Query genres = bool.filter().get(0);
+        assertEquals("genres", genres.terms().field());
+        assertEquals(List.of("Drama", "Comedy"), genres.terms().terms().value().stream()
+                .map(FieldValue::stringValue)
+                .toList());
+
+        NumberRangeQuery rating = bool.filter().get(2).range().number();
+        assertEquals("averageRating", rating.field());
+        assertEquals(7.5, rating.gte());
+        assertEquals(9.0, rating.lte());
+    }
+
+    @Test
+    void testYearToIncludesWholeYear() {
+        DateRangeQuery years = sentQuery(MovieSearchCriteria.builder()
+                .yearFrom(1990)
+                .yearTo(1999)
+                .build()).bool().filter().get(0).range().date();
+
+        // yearTo = 1999 включает 31 декабря: граница — начало следующего года, не включительно
+        assertEquals("release_date", years.field());
+        assertEquals("1990-01-01", years.gte());
+        assertEquals("2000-01-01", years.lt());
+        assertNull(years.lte());
+    }
+
+    @Test
+    void testOpenYearRangeHasOneBound() {
+        DateRangeQuery years = sentQuery(MovieSearchCriteria.builder()
+                .yearTo(1999)
+                .build()).bool().filter().get(0).range().date();
+
+        assertNull(years.gte());
+        assertEquals("2000-01-01", years.lt());
+    }
+
+    @Test
+    void testQueryWithoutTextOrFiltersMatchesAll() {
+        BoolQuery bool = sentQuery(new MovieSearchCriteria()).bool();
+
+        assertTrue(bool.must().isEmpty());
+        assertTrue(bool.filter().isEmpty());
+    }
+
+    @Test
+    void testFacetAggregationsAreRequested() {
+        NativeQuery query = send(new MovieSearchCriteria());
+
+        assertEquals("genres", query.getAggregations().get(MovieSearchQueryRepository.GENRES_AGGREGATION)
+                .terms().field());
+        // годы: в десятилетия их складывает MovieServiceImpl
+        var years = query.getAggregations().get(MovieSearchQueryRepository.YEARS_AGGREGATION).dateHistogram();
+        assertEquals("release_date", years.field());
+        assertEquals(CalendarInterval.Year, years.calendarInterval());
+        assertEquals("yyyy", years.format());
+    }
+
+    private Query sentQuery(MovieSearchCriteria criteria) {
+        return send(criteria).getQuery();
+    }
+
+    private NativeQuery send(MovieSearchCriteria criteria) {
+        repository.searchWithFacets(criteria, PageRequest.of(0, 20));
+        ArgumentCaptor<NativeQuery> sent = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(elasticsearchOperations).search(sent.capture(), eq(MovieDocument.class));
+        return sent.getValue();
+    }
+}
@@ -0,0 +1,206 @@
+package ru.danilgordienko.film_storage.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+import ru.danilgordienko.film_storage.model.entity.UserDocument;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class SearchAfterPagerTest {
+
+    private static final int SIZE = 2;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    private SearchAfterPager pager;
+
+    @BeforeEach
+    void setup() {
+        pager = new SearchAfterPager(elasticsearchOperations, new ObjectMapper());
+        ReflectionTestUtils.setField(pager, "keepAlive", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(pager, "maxPages", 3);
+        when(elasticsearchOperations.getIndexCoordinatesFor(MovieDocument.class)).thenReturn(IndexCoordinates.of("movies"));
+        when(elasticsearchOperations.getIndexCoordinatesFor(UserDocument.class)).thenReturn(IndexCoordinates.of("users"));
+        when(elasticsearchOperations.openPointInTime(any(), any(), any())).thenReturn("pit-1");
+    }
+
+    @Test
+    void testCursorContinuesPageModeThroughPointInTime() {
+        SearchHits<MovieDocument> page0 = hits(null, 10, 1, 2);
+        SearchHits<MovieDocument> page1 = hits("pit-1", 10, 3, 4);
+        SearchHits<MovieDocument> page2 = hits("pit-2", 10, 5, 6);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(MovieDocument.class)))
+                .thenReturn(page0, page1, page2);
+
+        CursorPage<MovieDocument> first = pager.page(query(), MovieDocument.class, 0, SIZE);
+        CursorPage<MovieDocument> second = pager.next(query(), MovieDocument.class, first.cursor(), SIZE);
+        NativeQuery third = query();
+        CursorPage<MovieDocument> thirdPage = pager.next(third, MovieDocument.class, second.cursor(), SIZE);
+
+        assertEquals(1, second.number());
+        assertEquals(2, thirdPage.number());
+        // PIT открывается один раз, при переходе от страниц по номеру
+        verify(elasticsearchOperations, times(1)).openPointInTime(any(), any(), any());
+        assertEquals("pit-1", third.getPointInTime().id());
+        // sort values проходят через JSON курсора
+        assertEquals(List.of(4, 4), third.getSearchAfter());
+        assertEquals(0, third.getPageable().getOffset());
+        assertNotNull(thirdPage.cursor());
+    }
+
+    @Test
+    void testFirstCursorPageUsesOffsetOfPageMode() {
+        SearchHits<MovieDocument> page0 = hits(null, 10, 1, 2);
+        SearchHits<MovieDocument> page1 = hits("pit-1", 10, 3, 4);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(MovieDocument.class)))
+                .thenReturn(page0, page1);
+
+        CursorPage<MovieDocument> first = pager.page(query(), MovieDocument.class, 0, SIZE);
+        ArgumentCaptor<NativeQuery> sent = ArgumentCaptor.forClass(NativeQuery.class);
+        pager.next(query(), MovieDocument.class, first.cursor(), SIZE);
+
+        verify(elasticsearchOperations, times(2)).search(sent.capture(), eq(MovieDocument.class));
+        assertEquals(SIZE, sent.getValue().getPageable().getOffset());
+        assertNull(sent.getValue().getSearchAfter());
+    }
+
+    @Test
+    void testLastPageClosesPointInTime() {
+        SearchHits<MovieDocument> page0 = hits(null, 3, 1, 2);
+        SearchHits<MovieDocument> page1 = hits("pit-1", 3, 3);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(MovieDocument.class)))
+                .thenReturn(page0, page1);
+
+        CursorPage<MovieDocument> first = pager.page(query(), MovieDocument.class, 0, SIZE);
+        CursorPage<MovieDocument> last = pager.next(query(), MovieDocument.class, first.cursor(), SIZE);
+
+        assertNull(last.cursor());
+        verify(elasticsearchOperations).closePointInTime("pit-1");
+    }
+
+    @Test
+    void testDeepPagesRequireCursor() {
+        assertThrows(IllegalArgumentException.class, () -> pager.page(query(), MovieDocument.class, 3, SIZE));
+        verify(elasticsearchOperations, never()).search(any(NativeQuery.class), any(Class.class));
+    }
+
+    @Test
+    void testLastNumberedPageContinuesWithSearchAfter() {
+        SearchHits<MovieDocument> page2 = hits(null, 10, 5, 6);
+        SearchHits<MovieDocument> page3 = hits("pit-1", 10, 7, 8);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(MovieDocument.class)))
+                .thenReturn(page2, page3);
+
+        CursorPage<MovieDocument> last = pager.page(query(), MovieDocument.class, 2, SIZE);
+        NativeQuery next = query();
+        CursorPage<MovieDocument> deep = pager.next(next, MovieDocument.class, last.cursor(), SIZE);
+
+        // смещение страницы 3 уже за max-pages, поэтому сразу search_after
+        assertEquals(3, deep.number());
+        assertEquals(0, next.getPageable().getOffset());
+        assertEquals(List.of(6, 6), next.getSearchAfter());
+    }
+
+    @Test
+    void testCursorWithDeepOffsetIsRejected() throws Exception {
+        SearchHits<MovieDocument> page0 = hits(null, 10, 1, 2);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(MovieDocument.class)))
+                .thenReturn(page0);
+        ObjectMapper objectMapper = new ObjectMapper();
+        String cursor = pager.page(query(), MovieDocument.class, 0, SIZE).cursor();
+        SearchAfterPager.Cursor position = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor),
+                SearchAfterPager.Cursor.class);
+
+        // подделанный курсор: тот же поиск, но from = 1000 * size за index.max_result_window
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(
+                new SearchAfterPager.Cursor(position.search(), null, null, 1000)));
+
+        assertThrows(IllegalArgumentException.class, () -> pager.next(query(), MovieDocument.class, forged, SIZE));
+        verify(elasticsearchOperations, never()).openPointInTime(any(), any(), any());
+        verify(elasticsearchOperations, times(1)).search(any(NativeQuery.class), eq(MovieDocument.class));
+    }
+
+    @Test
+    void testCursorOfAnotherSearchIsRejected() {
+        SearchHits<MovieDocument> page0 = hits(null, 10, 1, 2);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(MovieDocument.class)))
+                .thenReturn(page0);
+
+        String cursor = pager.page(query(), MovieDocument.class, 0, SIZE).cursor();
+
+        assertThrows(IllegalArgumentException.class, () -> pager.next(query(), UserDocument.class, cursor, SIZE));
+        assertThrows(IllegalArgumentException.class, () -> pager.next(query(), MovieDocument.class, "not a cursor", SIZE));
+    }
+
+    @Test
+    void testCursorOfAnotherQueryIsRejected() {
+        SearchHits<MovieDocument> page0 = hits(null, 10, 1, 2);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(MovieDocument.class)))
+                .thenReturn(page0);
+
+        String cursor = pager.page(query("матрица"), MovieDocument.class, 0, SIZE).cursor();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> pager.next(query("звёздные войны"), MovieDocument.class, cursor, SIZE));
+        verify(elasticsearchOperations, never()).openPointInTime(any(), any(), any());
+        verify(elasticsearchOperations, times(1)).search(any(NativeQuery.class), eq(MovieDocument.class));
+    }
+
+    private static NativeQuery query() {
+        return NativeQuery.builder()
+                .withQuery(q -> q.matchAll(m -> m))
+                .build();
+    }
+
+    private static NativeQuery query(String text) {
+        return NativeQuery.builder()
+                .withQuery(q -> q.match(m -> m.field("title").query(text)))
+                .build();
+    }
+
+    // документы с переданными id; sort values — [id, id], как [score, id] в настоящих запросах
+    @SuppressWarnings("unchecked")
+    private static SearchHits<MovieDocument> hits(String pit, long total, long... ids) {
+        List<SearchHit<MovieDocument>> content = LongStream.of(ids)
+                .mapToObj(id -> {
+                    MovieDocument document = new MovieDocument();
+                    document.setId(id);
+                    SearchHit<MovieDocument> hit = mock(SearchHit.class);
+                    when(hit.getContent()).thenReturn(document);
+                    when(hit.getSortValues()).thenReturn(List.<Object>of(id, id));
+                    return hit;
+                })
+                .toList();
+        SearchHits<MovieDocument> hits = mock(SearchHits.class);
+        when(hits.getSearchHits()).thenReturn(content);
+        when(hits.getSearchHit(anyInt())).thenAnswer(invocation -> content.get(invocation.<Integer>getArgument(0)));
+        when(hits.getTotalHits()).thenReturn(total);
+        when(hits.getTotalHitsRelation()).thenReturn(TotalHitsRelation.EQUAL_TO);
+        when(hits.getPointInTimeId()).thenReturn(pit);
+        return hits;
+    }
+}
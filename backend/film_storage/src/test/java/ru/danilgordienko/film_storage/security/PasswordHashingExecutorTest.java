@@ -0,0 +1,137 @@
+package ru.danilgordienko.film_storage.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.danilgordienko.film_storage.controller.AuthController;
+import ru.danilgordienko.film_storage.controller.MovieController;
+import ru.danilgordienko.film_storage.exception.ServiceOverloadedException;
+import ru.danilgordienko.film_storage.exception.handler.GlobalExceptionHandler;
+import ru.danilgordienko.film_storage.model.dto.AuthResponse;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieListDto;
+import ru.danilgordienko.film_storage.model.dto.PageDto;
+import ru.danilgordienko.film_storage.service.AuthService;
+import ru.danilgordienko.film_storage.service.MovieService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Нагрузочная проверка пула хеширования: шторм входов не должен
+ * блокировать потоки запросов, лишние входы отклоняются сразу.
+ */
+public class PasswordHashingExecutorTest {
+
+    private static final int THREADS = 2;
+    private static final int QUEUE_CAPACITY = 4;
+
+    private PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setup() {
+        executor = new PasswordHashingExecutor(THREADS, QUEUE_CAPACITY, 3, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testLoginStormIsRejectedWithRetryAfter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> accepted = new ArrayList<>();
+        int rejected = 0;
+
+        for (int i = 0; i < 50; i++) {
+            try {
+                accepted.add(executor.submit(() -> await(release)));
+            } catch (ServiceOverloadedException e) {
+                assertEquals(3, e.getRetryAfterSeconds());
+                rejected++;
+            }
+        }
+
+        assertEquals(THREADS + QUEUE_CAPACITY, accepted.size());
+        assertEquals(50 - THREADS - QUEUE_CAPACITY, rejected);
+
+        release.countDown();
+        for (CompletableFuture<Boolean> future : accepted) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testReadRequestsAreServedWhileHashingPoolIsSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AuthService authService = mock(AuthService.class);
+        when(authService.login(any())).thenAnswer(invocation -> {
+            await(release);
+            return new AuthResponse("access", "refresh");
+        });
+        MovieService movieService = mock(MovieService.class);
+        when(movieService.getMoviesPage(0)).thenReturn(new PageDto<>(List.of(new MovieListDto()), 0, 1));
+        MockMvc mockMvc = MockMvcBuilders
+                .standaloneSetup(new AuthController(authService, executor),
+                        new MovieController(movieService, null, null, null))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        String login = "{\"username\":\"user\",\"password\":\"password\"}";
+
+        // поток теста играет роль потока Tomcat: если бы проверка пароля шла в нём,
+        // первый же вход повис бы на release и таймаут бы сработал
+        List<MvcResult> logins = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < THREADS + QUEUE_CAPACITY; i++) {
+                logins.add(mockMvc.perform(post("/api/auth/login")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(login))
+                        .andExpect(request().asyncStarted())
+                        .andReturn());
+            }
+            // пул хеширования и его очередь заняты, чтение обслуживается сразу
+            mockMvc.perform(get("/api/movies").param("page", "0"))
+                    .andExpect(status().isOk());
+            // лишний вход отклоняется, а не ждёт
+            mockMvc.perform(post("/api/auth/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(login))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+        });
+
+        release.countDown();
+        for (MvcResult result : logins) {
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    private boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.danilgordienko.film_storage.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.danilgordienko.film_storage.repository.UserRepository;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PrincipalCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private PrincipalCache principalCache;
+
+    @BeforeEach
+    void setup() {
+        principalCache = new PrincipalCache(userRepository, redisTemplate, listenerContainer, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(principalCache, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(principalCache, "maxSize", 100L);
+        ReflectionTestUtils.invokeMethod(principalCache, "init");
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testEvictionInTransactionWaitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        principalCache.evict("user@mail.ru");
+        verifyNoInteractions(redisTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(redisTemplate).convertAndSend(PrincipalCache.EVICTION_CHANNEL, "user@mail.ru");
+    }
+
+    @Test
+    void testEvictionWithoutTransactionIsImmediate() {
+        principalCache.evict("user@mail.ru");
+
+        verify(redisTemplate).convertAndSend(PrincipalCache.EVICTION_CHANNEL, "user@mail.ru");
+    }
+}
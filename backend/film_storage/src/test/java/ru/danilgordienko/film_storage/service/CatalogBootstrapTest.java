@@ -0,0 +1,154 @@
+package ru.danilgordienko.film_storage.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danilgordienko.film_storage.MovieAPI.MovieApiClient;
+import ru.danilgordienko.film_storage.model.dto.CatalogBootstrapStatusDto;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieDto;
+import ru.danilgordienko.film_storage.model.entity.CatalogBootstrapPage;
+import ru.danilgordienko.film_storage.model.entity.CatalogBootstrapRun;
+import ru.danilgordienko.film_storage.repository.CatalogBootstrapPageRepository;
+import ru.danilgordienko.film_storage.repository.CatalogBootstrapRunRepository;
+import ru.danilgordienko.film_storage.repository.GenreRepository;
+import ru.danilgordienko.film_storage.service.impl.CatalogBootstrap;
+import ru.danilgordienko.film_storage.service.impl.GenreDictionary;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CatalogBootstrapTest {
+
+    private static final long RUN_ID = 7L;
+
+    @Mock
+    private MovieApiClient movieApiClient;
+
+    @Mock
+    private MovieService movieService;
+
+    @Mock
+    private GenreRepository genreRepository;
+
+    @Mock
+    private GenreDictionary genreDictionary;
+
+    @Mock
+    private CatalogBootstrapRunRepository runRepository;
+
+    @Mock
+    private CatalogBootstrapPageRepository pageRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private CatalogBootstrap catalogBootstrap;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        catalogBootstrap = new CatalogBootstrap(movieApiClient, movieService, genreRepository,
+                genreDictionary, runRepository, pageRepository, transactionTemplate);
+        ReflectionTestUtils.setField(catalogBootstrap, "concurrency", 3);
+        ReflectionTestUtils.setField(catalogBootstrap, "maxPageAttempts", 3);
+        ReflectionTestUtils.invokeMethod(catalogBootstrap, "init");
+
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any(Consumer.class));
+        when(runRepository.save(any())).thenAnswer(invocation -> {
+            CatalogBootstrapRun run = invocation.getArgument(0);
+            run.setId(RUN_ID);
+            return run;
+        });
+        when(movieApiClient.getGenres()).thenReturn(List.of());
+        when(movieApiClient.getPopularMoviesPage(anyInt())).thenReturn(List.of(new MovieDto()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(catalogBootstrap, "shutdown");
+    }
+
+    @Test
+    void testResumedRunSkipsSavedPages() throws Exception {
+        when(pageRepository.findPagesByRunId(RUN_ID)).thenReturn(List.of(1, 2));
+
+        catalogBootstrap.start(1, 5);
+        CatalogBootstrapStatusDto status = awaitFinished();
+
+        verify(movieApiClient, never()).getPopularMoviesPage(1);
+        verify(movieApiClient, never()).getPopularMoviesPage(2);
+        verify(movieApiClient, times(3)).getPopularMoviesPage(intThat(page -> page >= 3));
+        verify(pageRepository, times(3)).save(any(CatalogBootstrapPage.class));
+        assertEquals(5, status.getPagesDone());
+        assertEquals(3, status.getMoviesSaved());
+        verify(runRepository).markFinished(eq(RUN_ID), any(), eq(0));
+        verify(genreDictionary).reload();
+    }
+
+    @Test
+    void testFailedPageDoesNotStopOtherPages() throws Exception {
+        when(movieApiClient.getPopularMoviesPage(2)).thenThrow(new RuntimeException("fetcher unavailable"));
+
+        catalogBootstrap.start(1, 3);
+        CatalogBootstrapStatusDto status = awaitFinished();
+
+        assertEquals(2, status.getPagesDone());
+        assertEquals(1, status.getErrors());
+        assertEquals("fetcher unavailable", status.getLastError());
+        verify(movieService, times(2)).saveMovies(any());
+        verify(pageRepository).recordFailure(eq(RUN_ID), eq(2), eq("fetcher unavailable"), any());
+        // у страницы остались попытки: запуск не закрывается и продолжится после рестарта
+        verify(runRepository, never()).markFinished(any(), any(), anyInt());
+    }
+
+    @Test
+    void testRunWithExhaustedPagesIsClosedWithErrors() throws Exception {
+        when(pageRepository.findPagesByRunId(RUN_ID)).thenReturn(List.of(1));
+        when(pageRepository.findExhaustedPages(RUN_ID, 3)).thenReturn(List.of(2));
+
+        catalogBootstrap.start(1, 3);
+        CatalogBootstrapStatusDto status = awaitFinished();
+
+        // страница, исчерпавшая попытки, больше не запрашивается
+        verify(movieApiClient, never()).getPopularMoviesPage(2);
+        verify(movieApiClient).getPopularMoviesPage(3);
+        assertEquals(2, status.getPagesDone());
+        assertEquals(1, status.getFailedPages());
+        verify(runRepository).markFinished(eq(RUN_ID), any(), eq(1));
+    }
+
+    @Test
+    void testPageRangeBeyondTmdbLimitIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> catalogBootstrap.start(1, 501));
+        verify(runRepository, never()).save(any());
+    }
+
+    private CatalogBootstrapStatusDto awaitFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        CatalogBootstrapStatusDto status = catalogBootstrap.getStatus();
+        while (status.isRunning() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            status = catalogBootstrap.getStatus();
+        }
+        assertFalse(status.isRunning(), "bootstrap did not finish");
+        return status;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.danilgordienko.film_storage.service;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.danilgordienko.film_storage.model.dto.FacetCountDto;
+import ru.danilgordienko.film_storage.model.dto.MovieFacetedSearchDto;
+import ru.danilgordienko.film_storage.model.dto.MovieSearchCriteria;
+import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.repository.MovieSearchQueryRepository;
+import ru.danilgordienko.film_storage.repository.MovieSearchRepository;
+import ru.danilgordienko.film_storage.service.impl.GenreDictionary;
+import ru.danilgordienko.film_storage.service.impl.MovieServiceImpl;
+import ru.danilgordienko.film_storage.service.impl.SearchOutbox;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class MovieFacetedSearchTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private GenreDictionary genreDictionary;
+
+    @Mock
+    private MovieMapping movieMapping;
+
+    @Mock
+    private MovieSearchRepository movieSearchRepository;
+
+    @Mock
+    private SearchOutbox searchOutbox;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SearchHits<MovieDocument> hits;
+
+    private MovieServiceImpl movieService;
+
+    @BeforeEach
+    void setup() {
+        movieService = new MovieServiceImpl(movieRepository, genreDictionary, movieMapping,
+                movieSearchRepository, searchOutbox, new ObjectMapper(), eventPublisher);
+        ReflectionTestUtils.setField(movieService, "maxPages", 3);
+
+        when(movieSearchRepository.searchWithFacets(any(), any(Pageable.class))).thenReturn(hits);
+    }
+
+    @Test
+    void testYearBucketsAreMergedIntoDecades() {
+        doReturn(new ElasticsearchAggregations(Map.of(
+                MovieSearchQueryRepository.GENRES_AGGREGATION, genres(Map.of("Drama", 7L)),
+                MovieSearchQueryRepository.YEARS_AGGREGATION, years(Map.of(1994, 3L, 1999, 2L, 2001, 4L)))))
+                .when(hits).getAggregations();
+
+        MovieFacetedSearchDto result = movieService.searchMoviesWithFacets(new MovieSearchCriteria(), 0);
+
+        assertEquals(List.of(new FacetCountDto("1990", 5), new FacetCountDto("2000", 4)), result.getDecades());
+        assertEquals(List.of(new FacetCountDto("Drama", 7)), result.getGenres());
+    }
+
+    @Test
+    void testMissingAggregationsGiveEmptyFacets() {
+        MovieFacetedSearchDto result = movieService.searchMoviesWithFacets(new MovieSearchCriteria(), 0);
+
+        assertTrue(result.getGenres().isEmpty());
+        assertTrue(result.getDecades().isEmpty());
+    }
+
+    @Test
+    void testPageOutsideLimitIsRejected() {
+        // глубже max-pages поиск с фильтрами упирается в max_result_window
+        assertRejected(new MovieSearchCriteria(), 3);
+        assertRejected(new MovieSearchCriteria(), -1);
+    }
+
+    @Test
+    void testInvertedRangesAreRejected() {
+        assertRejected(MovieSearchCriteria.builder().yearFrom(2000).yearTo(1990).build(), 0);
+        assertRejected(MovieSearchCriteria.builder().ratingFrom(8.0).ratingTo(5.0).build(), 0);
+    }
+
+    @Test
+    void testRatingOutsideScaleIsRejected() {
+        assertRejected(MovieSearchCriteria.builder().ratingFrom(-1.0).build(), 0);
+        assertRejected(MovieSearchCriteria.builder().ratingTo(10.5).build(), 0);
+        assertRejected(MovieSearchCriteria.builder().ratingFrom(Double.NaN).build(), 0);
+    }
+
+    @Test
+    void testYearOutsideDateFormatIsRejected() {
+        // год подставляется в yyyy-01-01, а yearTo + 1 не должен выйти за четыре цифры
+        assertRejected(MovieSearchCriteria.builder().yearFrom(999).build(), 0);
+        assertRejected(MovieSearchCriteria.builder().yearTo(9999).build(), 0);
+    }
+
+    private void assertRejected(MovieSearchCriteria criteria, int page) {
+        assertThrows(IllegalArgumentException.class, () -> movieService.searchMoviesWithFacets(criteria, page));
+        verify(movieSearchRepository, never()).searchWithFacets(any(), any());
+    }
+
+    private static Aggregate genres(Map<String, Long> counts) {
+        List<StringTermsBucket> buckets = counts.entrySet().stream()
+                .map(genre -> StringTermsBucket.of(b -> b
+                        .key(FieldValue.of(genre.getKey()))
+                        .docCount(genre.getValue())))
+                .toList();
+        return Aggregate.of(a -> a.sterms(t -> t.buckets(b -> b.array(buckets))));
+    }
+
+    private static Aggregate years(Map<Integer, Long> counts) {
+        List<DateHistogramBucket> buckets = counts.entrySet().stream()
+                .map(year -> DateHistogramBucket.of(b -> b
+                        .key(0L)
+                        .keyAsString(String.valueOf(year.getKey()))
+                        .docCount(year.getValue())))
+                .toList();
+        return Aggregate.of(a -> a.dateHistogram(h -> h.buckets(b -> b.array(buckets))));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.danilgordienko.film_storage.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MovieSuggestionDto;
+import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+import ru.danilgordienko.film_storage.repository.MovieSearchRepository;
+import ru.danilgordienko.film_storage.service.impl.MovieSuggester;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MovieSuggesterTest {
+
+    @Mock
+    private MovieSearchRepository movieSearchRepository;
+
+    @Mock
+    private MovieMapping movieMapping;
+
+    private MovieSuggester movieSuggester;
+
+    @BeforeEach
+    void setup() {
+        movieSuggester = new MovieSuggester(movieSearchRepository, movieMapping, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(movieSuggester, "maxResults", 5);
+        ReflectionTestUtils.setField(movieSuggester, "maxPrefixLength", 50);
+        ReflectionTestUtils.setField(movieSuggester, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(movieSuggester, "maxSize", 100L);
+        ReflectionTestUtils.invokeMethod(movieSuggester, "init");
+    }
+
+    @Test
+    void testSuggestionsAreCappedAndCachedByNormalizedPrefix() {
+        when(movieSearchRepository.suggestTitles("звёздные вой", 5)).thenReturn(LongStream.rangeClosed(1, 5)
+                .mapToObj(id -> {
+                    MovieDocument document = new MovieDocument();
+                    document.setId(id);
+                    return document;
+                })
+                .toList());
+        when(movieMapping.toMovieSuggestionDto(any())).thenAnswer(invocation ->
+                new MovieSuggestionDto(invocation.<MovieDocument>getArgument(0).getId(), "title", 1977));
+
+        List<MovieSuggestionDto> first = movieSuggester.suggest("  Звёздные   ВОЙ ", 100);
+        List<MovieSuggestionDto> second = movieSuggester.suggest("звёздные вой", 2);
+
+        assertEquals(5, first.size());
+        assertEquals(List.of(1L, 2L), second.stream().map(MovieSuggestionDto::getId).toList());
+        verify(movieSearchRepository, times(1)).suggestTitles(any(), anyInt());
+    }
+
+    @Test
+    void testBlankQueryDoesNotHitElasticsearch() {
+        assertTrue(movieSuggester.suggest("   ", 10).isEmpty());
+        assertTrue(movieSuggester.suggest(null, 10).isEmpty());
+
+        verifyNoInteractions(movieSearchRepository);
+    }
+}
@@ -0,0 +1,157 @@
+package ru.danilgordienko.film_storage.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.danilgordienko.film_storage.MovieAPI.MovieApiClient;
+import ru.danilgordienko.film_storage.model.dto.MoviesDto.MoviePosterView;
+import ru.danilgordienko.film_storage.model.enums.PosterSize;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.service.impl.PosterServiceImpl;
+import ru.danilgordienko.film_storage.storage.PosterFile;
+import ru.danilgordienko.film_storage.storage.PosterStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PosterServiceTest {
+
+    private static final Long MOVIE_ID = 1L;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private MovieApiClient movieApiClient;
+
+    @Mock
+    private CacheManager binaryCacheManager;
+
+    @Mock
+    private MoviePosterView movie;
+
+    @TempDir
+    private Path posterDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PosterService posterService;
+
+    @BeforeEach
+    void setup() {
+        PosterStore posterStore = new PosterStore();
+        ReflectionTestUtils.setField(posterStore, "root", posterDir);
+
+        meterRegistry = new SimpleMeterRegistry();
+        posterService = new PosterServiceImpl(movieRepository, movieApiClient, posterStore,
+                binaryCacheManager, Runnable::run, false, Duration.ofMinutes(5), Duration.ofDays(7), meterRegistry);
+
+        when(movie.getPoster()).thenReturn("/poster.jpg");
+        when(movieRepository.findPosterById(eq(MOVIE_ID), anyString(), any(LocalDateTime.class))).thenReturn(Optional.of(movie));
+    }
+
+    @Test
+    void testConcurrentMissesShareOneFetch() {
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        when(movieApiClient.getPosterAsync(MOVIE_ID, "/poster.jpg", PosterSize.W500)).thenReturn(response);
+
+        List<CompletableFuture<Optional<PosterFile>>> waiters = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            waiters.add(posterService.getPoster(MOVIE_ID, PosterSize.W500));
+        }
+        response.complete(new byte[]{1, 2, 3});
+
+        verify(movieApiClient, times(1)).getPosterAsync(anyLong(), anyString(), any());
+        PosterFile first = waiters.getFirst().join().orElseThrow();
+        for (CompletableFuture<Optional<PosterFile>> waiter : waiters) {
+            assertSame(first, waiter.join().orElseThrow());
+        }
+        assertEquals(9, meterRegistry.counter("posters.fetch.coalesced").count());
+        verify(movieRepository).savePosterVariant(MOVIE_ID, "/poster.jpg", "w500", first.hash());
+    }
+
+    @Test
+    void testMissingPosterIsCachedNegatively() {
+        when(movieApiClient.getPosterAsync(MOVIE_ID, "/poster.jpg", PosterSize.W500))
+                .thenReturn(CompletableFuture.completedFuture(new byte[0]));
+
+        assertTrue(posterService.getPoster(MOVIE_ID, PosterSize.W500).join().isEmpty());
+        assertTrue(posterService.getPoster(MOVIE_ID, PosterSize.W500).join().isEmpty());
+
+        verify(movieApiClient, times(1)).getPosterAsync(anyLong(), anyString(), any());
+        assertEquals(1, meterRegistry.counter("posters.negative.hits").count());
+        verify(movieRepository).savePosterMissing(MOVIE_ID, "/poster.jpg", "w500");
+    }
+
+    @Test
+    void testPosterMarkedMissingIsNotRequested() {
+        when(movie.getPosterMissing()).thenReturn(true);
+
+        assertTrue(posterService.getPoster(MOVIE_ID, PosterSize.W500).join().isEmpty());
+
+        verifyNoInteractions(movieApiClient);
+    }
+
+    @Test
+    void testMissingMarkIsHonouredOnlyWithinTtl() {
+        when(movie.getPosterMissing()).thenReturn(true);
+
+        LocalDateTime before = LocalDateTime.now().minusDays(7);
+        posterService.getPoster(MOVIE_ID, PosterSize.W500).join();
+        LocalDateTime after = LocalDateTime.now().minusDays(7);
+
+        // отметки старше app.posters.missing.ttl база не возвращает как posterMissing
+        verify(movieRepository).findPosterById(eq(MOVIE_ID), eq("w500"),
+                argThat(since -> !since.isBefore(before) && !since.isAfter(after)));
+    }
+
+    @Test
+    void testFailedFetchIsNotCached() {
+        when(movieApiClient.getPosterAsync(MOVIE_ID, "/poster.jpg", PosterSize.W500))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()))
+                .thenReturn(CompletableFuture.completedFuture(new byte[]{1}));
+
+        // таймаут доходит до контроллера, а не превращается в 404
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> posterService.getPoster(MOVIE_ID, PosterSize.W500).join());
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(posterService.getPoster(MOVIE_ID, PosterSize.W500).join().isPresent());
+
+        verify(movieApiClient, times(2)).getPosterAsync(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void testSizesAreFetchedAndCachedSeparately() {
+        when(movieApiClient.getPosterAsync(MOVIE_ID, "/poster.jpg", PosterSize.W185))
+                .thenReturn(CompletableFuture.completedFuture(new byte[]{1}));
+        when(movieApiClient.getPosterAsync(MOVIE_ID, "/poster.jpg", PosterSize.W500))
+                .thenReturn(CompletableFuture.completedFuture(new byte[0]));
+
+        assertTrue(posterService.getPoster(MOVIE_ID, PosterSize.W500).join().isEmpty());
+        // отсутствие w500 не мешает загрузить w185
+        PosterFile small = posterService.getPoster(MOVIE_ID, PosterSize.W185).join().orElseThrow();
+
+        verify(movieRepository).savePosterVariant(MOVIE_ID, "/poster.jpg", "w185", small.hash());
+        verify(movieApiClient, times(2)).getPosterAsync(anyLong(), anyString(), any());
+    }
+}
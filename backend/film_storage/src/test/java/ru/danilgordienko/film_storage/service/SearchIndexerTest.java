@@ -0,0 +1,242 @@
+package ru.danilgordienko.film_storage.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
+import ru.danilgordienko.film_storage.model.dto.mapping.UserMapping;
+import ru.danilgordienko.film_storage.model.entity.Movie;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+import ru.danilgordienko.film_storage.model.entity.SearchOutboxEvent;
+import ru.danilgordienko.film_storage.model.enums.SearchEntityType;
+import ru.danilgordienko.film_storage.model.enums.SearchOperation;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.repository.SearchOutboxRepository;
+import ru.danilgordienko.film_storage.repository.UserRepository;
+import ru.danilgordienko.film_storage.service.impl.SearchIndexer;
+import ru.danilgordienko.film_storage.service.impl.SearchReindexer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class SearchIndexerTest {
+
+    @Mock
+    private SearchOutboxRepository outboxRepository;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MovieMapping movieMapping;
+
+    @Mock
+    private UserMapping userMapping;
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private ElasticsearchConverter elasticsearchConverter;
+
+    @Mock
+    private SearchReindexer searchReindexer;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private SearchIndexer searchIndexer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        searchIndexer = new SearchIndexer(outboxRepository, movieRepository, userRepository,
+                movieMapping, userMapping, elasticsearchClient, elasticsearchOperations,
+                searchReindexer, transactionTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(searchIndexer, "batchSize", 10);
+        ReflectionTestUtils.setField(searchIndexer, "backoffInitialMs", 1000L);
+        ReflectionTestUtils.setField(searchIndexer, "backoffMaxMs", 60000L);
+        ReflectionTestUtils.invokeMethod(searchIndexer, "init");
+
+        when(transactionTemplate.execute(any(TransactionCallback.class))).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Integer>>getArgument(0).doInTransaction(null));
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(searchReindexer.aliasName(SearchEntityType.MOVIE)).thenReturn("movies");
+        when(searchReindexer.buildingIndex(any())).thenReturn(Optional.empty());
+        when(elasticsearchConverter.mapObject(any())).thenReturn(Document.create());
+        when(outboxRepository.findOldestCreatedAt()).thenReturn(Optional.empty());
+        when(movieRepository.findAllById(any())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            List<Movie> movies = new ArrayList<>();
+            ids.forEach(id -> {
+                Movie movie = new Movie();
+                movie.setId(id);
+                movie.setSearchVersion(100 + id);
+                movies.add(movie);
+            });
+            return movies;
+        });
+        when(movieMapping.toMovieDocument(any())).thenAnswer(invocation -> {
+            MovieDocument document = new MovieDocument();
+            document.setId(invocation.<Movie>getArgument(0).getId());
+            return document;
+        });
+    }
+
+    @Test
+    void testLatestEventPerDocumentIsSentWithExternalVersion() throws Exception {
+        SearchOutboxEvent older = event(1L, 5L, SearchOperation.INDEX);
+        SearchOutboxEvent newer = event(2L, 5L, SearchOperation.INDEX);
+        SearchOutboxEvent delete = event(3L, 6L, SearchOperation.DELETE);
+        delete.setVersion(42L);
+        when(outboxRepository.claimBatch(any(), anyInt())).thenReturn(List.of(older, newer, delete));
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(response(
+                item(OperationType.Index, "5", 201, null),
+                item(OperationType.Delete, "6", 404, null)));
+
+        searchIndexer.drain();
+
+        ArgumentCaptor<BulkRequest> request = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient).bulk(request.capture());
+        assertEquals(2, request.getValue().operations().size());
+        // документ пишется с search_version фильма, удаление — с версией события
+        assertEquals(105L, request.getValue().operations().get(0).index().version());
+        assertEquals(VersionType.External, request.getValue().operations().get(0).index().versionType());
+        assertEquals("6", request.getValue().operations().get(1).delete().id());
+        assertEquals(42L, request.getValue().operations().get(1).delete().version());
+        assertEquals(VersionType.External, request.getValue().operations().get(1).delete().versionType());
+        verify(outboxRepository).deleteAllInBatch(List.of(older, newer, delete));
+    }
+
+    @Test
+    void testFailedItemsAreRescheduledWithBackoff() throws Exception {
+        SearchOutboxEvent indexed = event(1L, 5L, SearchOperation.INDEX);
+        SearchOutboxEvent conflict = event(2L, 6L, SearchOperation.INDEX);
+        SearchOutboxEvent rejected = event(3L, 7L, SearchOperation.INDEX);
+        rejected.setAttempts(2);
+        when(outboxRepository.claimBatch(any(), anyInt())).thenReturn(List.of(indexed, conflict, rejected));
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(response(
+                item(OperationType.Index, "5", 200, null),
+                item(OperationType.Index, "6", 409, "version_conflict_engine_exception"),
+                item(OperationType.Index, "7", 429, "es_rejected_execution_exception")));
+
+        LocalDateTime before = LocalDateTime.now();
+        searchIndexer.drain();
+
+        // 409: в индексе уже более новая версия, событие перекрыто и не повторяется
+        verify(outboxRepository).deleteAllInBatch(List.of(indexed, conflict));
+        assertEquals(0, conflict.getAttempts());
+        assertEquals(3, rejected.getAttempts());
+        assertEquals("es_rejected_execution_exception", rejected.getLastError());
+        // 1 с * 2^(3 - 1)
+        assertFalse(rejected.getNextAttemptAt().isBefore(before.plusSeconds(4)));
+    }
+
+    @Test
+    void testIndexEventOfDeletedMovieIsAcknowledgedWithoutRequest() throws Exception {
+        SearchOutboxEvent event = event(1L, 5L, SearchOperation.INDEX);
+        when(outboxRepository.claimBatch(any(), anyInt())).thenReturn(List.of(event));
+        when(movieRepository.findAllById(any())).thenReturn(List.of());
+
+        searchIndexer.drain();
+
+        // документ удалит событие DELETE, записанное вместе с удалением фильма
+        verify(elasticsearchClient, never()).bulk(any(BulkRequest.class));
+        verify(outboxRepository).deleteAllInBatch(List.of(event));
+    }
+
+    @Test
+    void testChangesAreAlsoWrittenToIndexBeingRebuilt() throws Exception {
+        SearchOutboxEvent event = event(1L, 5L, SearchOperation.INDEX);
+        when(searchReindexer.buildingIndex(SearchEntityType.MOVIE)).thenReturn(Optional.of("movies_v2"));
+        when(outboxRepository.claimBatch(any(), anyInt())).thenReturn(List.of(event));
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(response(
+                item(OperationType.Index, "5", 200, null),
+                item(OperationType.Index, "5", 503, "unavailable_shards_exception")));
+
+        searchIndexer.drain();
+
+        ArgumentCaptor<BulkRequest> request = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient).bulk(request.capture());
+        assertEquals(List.of("movies", "movies_v2"), request.getValue().operations().stream()
+                .map(operation -> operation.index().index())
+                .toList());
+        // запись в новый индекс не удалась — событие повторится
+        verify(outboxRepository).deleteAllInBatch(List.of());
+        assertEquals(1, event.getAttempts());
+    }
+
+    @Test
+    void testUnavailableElasticsearchKeepsEventsInOutbox() throws Exception {
+        SearchOutboxEvent event = event(1L, 5L, SearchOperation.INDEX);
+        when(outboxRepository.claimBatch(any(), anyInt())).thenReturn(List.of(event));
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenThrow(new IOException("Connection refused"));
+
+        searchIndexer.drain();
+
+        verify(outboxRepository).deleteAllInBatch(List.of());
+        assertEquals(1, event.getAttempts());
+        assertEquals("Connection refused", event.getLastError());
+        assertTrue(event.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    private static SearchOutboxEvent event(Long id, Long movieId, SearchOperation operation) {
+        LocalDateTime now = LocalDateTime.now();
+        return SearchOutboxEvent.builder()
+                .id(id)
+                .entityType(SearchEntityType.MOVIE)
+                .entityId(movieId)
+                .operation(operation)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+    }
+
+    private static BulkResponse response(BulkResponseItem... items) {
+        return BulkResponse.of(b -> b.errors(true).took(1).items(List.of(items)));
+    }
+
+    private static BulkResponseItem item(OperationType type, String id, int status, String error) {
+        return BulkResponseItem.of(b -> {
+            b.operationType(type).index("movies").id(id).status(status);
+            if (error != null) {
+                b.error(ErrorCause.of(e -> e.type(error).reason(error)));
+            }
+            return b;
+        });
+    }
+}
@@ -0,0 +1,263 @@
+package ru.danilgordienko.film_storage.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.GetAliasResponse;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesRequest;
+import co.elastic.clients.elasticsearch.indices.get_alias.IndexAliases;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import co.elastic.clients.util.ObjectBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.danilgordienko.film_storage.model.dto.IdRangeView;
+import ru.danilgordienko.film_storage.model.dto.SearchReindexStatusDto;
+import ru.danilgordienko.film_storage.model.dto.mapping.MovieMapping;
+import ru.danilgordienko.film_storage.model.entity.Movie;
+import ru.danilgordienko.film_storage.model.entity.MovieDocument;
+import ru.danilgordienko.film_storage.model.enums.SearchEntityType;
+import ru.danilgordienko.film_storage.repository.MovieRepository;
+import ru.danilgordienko.film_storage.repository.UserRepository;
+import ru.danilgordienko.film_storage.service.impl.SearchReindexer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class SearchReindexerTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MovieMapping movieMapping;
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    @Mock
+    private ElasticsearchIndicesClient indicesClient;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private ElasticsearchConverter elasticsearchConverter;
+
+    @Mock
+    private IndexOperations definitionOps;
+
+    @Mock
+    private IndexOperations indexOps;
+
+    @Mock
+    private IdRangeView range;
+
+    private SearchReindexer searchReindexer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() throws IOException {
+        searchReindexer = new SearchReindexer(movieRepository, userRepository, movieMapping,
+                elasticsearchClient, elasticsearchOperations);
+        ReflectionTestUtils.setField(searchReindexer, "concurrency", 4);
+        ReflectionTestUtils.setField(searchReindexer, "batchSize", 100);
+        ReflectionTestUtils.setField(searchReindexer, "replicas", "1");
+        ReflectionTestUtils.setField(searchReindexer, "refreshInterval", "1s");
+        ReflectionTestUtils.invokeMethod(searchReindexer, "init");
+
+        when(elasticsearchOperations.getIndexCoordinatesFor(MovieDocument.class))
+                .thenReturn(IndexCoordinates.of("movies"));
+        when(elasticsearchOperations.indexOps(MovieDocument.class)).thenReturn(definitionOps);
+        when(elasticsearchOperations.indexOps(any(IndexCoordinates.class))).thenReturn(indexOps);
+        when(elasticsearchOperations.getElasticsearchConverter()).thenReturn(elasticsearchConverter);
+        when(elasticsearchConverter.mapObject(any())).thenReturn(Document.create());
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(elasticsearchClient.bulk(any(Function.class)))
+                .thenReturn(BulkResponse.of(b -> b.errors(false).took(1).items(List.of())));
+        when(indicesClient.existsAlias(any(Function.class))).thenReturn(new BooleanResponse(false));
+        when(indicesClient.exists(any(Function.class))).thenReturn(new BooleanResponse(false));
+
+        // один фильм с id 1
+        when(range.getMinId()).thenReturn(1L);
+        when(range.getMaxId()).thenReturn(1L);
+        when(movieRepository.findIdRange()).thenReturn(range);
+        when(movieRepository.count()).thenReturn(1L);
+        when(movieRepository.findPageInRange(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            if (afterId >= 1) {
+                return List.of();
+            }
+            Movie movie = new Movie();
+            movie.setId(1L);
+            return List.of(movie);
+        });
+        when(movieMapping.toMovieDocument(any())).thenAnswer(invocation -> {
+            MovieDocument document = new MovieDocument();
+            document.setId(invocation.<Movie>getArgument(0).getId());
+            return document;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(searchReindexer, "shutdown");
+    }
+
+    @Test
+    void testSingleIdRangeIsOneSlice() {
+        // min = max = 5: диапазон (4, 5]
+        assertEquals(List.of("4-5"), slices(4, 5));
+    }
+
+    @Test
+    void testFewerIdsThanConcurrencyGiveOneIdPerSlice() {
+        assertEquals(List.of("0-1", "1-2"), slices(0, 2));
+    }
+
+    @Test
+    void testSlicesCoverWholeRange() {
+        // шаг ceil(10 / 4) = 3, последний диапазон короче
+        assertEquals(List.of("0-3", "3-6", "6-9", "9-10"), slices(0, 10));
+    }
+
+    @Test
+    void testFirstSwapRemovesIndexNamedLikeAlias() throws Exception {
+        when(indicesClient.exists(any(Function.class))).thenReturn(new BooleanResponse(true));
+
+        searchReindexer.start(SearchEntityType.MOVIE);
+        SearchReindexStatusDto status = awaitFinished();
+
+        assertTrue(status.isCompleted());
+        assertEquals(1, status.getDocsIndexed());
+        // документы до первого перестроения лежат в индексе movies: он удаляется той же командой,
+        // что создаёт псевдоним, иначе имя было бы занято
+        List<Action> actions = aliasActions();
+        assertEquals(2, actions.size());
+        assertTrue(actions.get(0).isAdd());
+        assertEquals(status.getIndex(), actions.get(0).add().index());
+        assertEquals("movies", actions.get(0).add().alias());
+        assertTrue(actions.get(1).isRemoveIndex());
+        assertEquals("movies", actions.get(1).removeIndex().index());
+        assertTrue(searchReindexer.buildingIndex(SearchEntityType.MOVIE).isEmpty());
+    }
+
+    @Test
+    void testSwapMovesAliasFromPreviousIndex() throws Exception {
+        when(indicesClient.existsAlias(any(Function.class))).thenReturn(new BooleanResponse(true));
+        when(indicesClient.getAlias(any(Function.class))).thenReturn(GetAliasResponse.of(b -> b
+                .result("movies_v1", IndexAliases.of(a -> a.aliases(Map.of())))));
+
+        searchReindexer.start(SearchEntityType.MOVIE);
+        SearchReindexStatusDto status = awaitFinished();
+
+        assertTrue(status.isCompleted());
+        List<Action> actions = aliasActions();
+        assertEquals(2, actions.size());
+        assertEquals(status.getIndex(), actions.get(0).add().index());
+        assertTrue(actions.get(1).isRemove());
+        assertEquals("movies_v1", actions.get(1).remove().index());
+        assertEquals("movies", actions.get(1).remove().alias());
+        // старый индекс удаляется после переключения
+        verify(elasticsearchOperations).indexOps(index("movies_v1"));
+        verify(indexOps).delete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedReindexDropsNewIndex() throws Exception {
+        when(elasticsearchClient.bulk(any(Function.class))).thenThrow(new IOException("Connection refused"));
+
+        searchReindexer.start(SearchEntityType.MOVIE);
+        SearchReindexStatusDto status = awaitFinished();
+
+        assertFalse(status.isCompleted());
+        assertEquals("java.io.IOException: Connection refused", status.getLastError());
+        // удаляется только новый индекс
+        verify(indexOps).delete();
+        verify(indicesClient, never()).updateAliases(any(Function.class));
+        assertTrue(searchReindexer.buildingIndex(SearchEntityType.MOVIE).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCancelledReindexDropsNewIndex() throws Exception {
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(elasticsearchClient.bulk(any(Function.class))).thenAnswer(invocation -> {
+            bulkStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return BulkResponse.of(b -> b.errors(false).took(1).items(List.of()));
+        });
+
+        SearchReindexStatusDto started = searchReindexer.start(SearchEntityType.MOVIE);
+        assertTrue(bulkStarted.await(5, TimeUnit.SECONDS));
+        // пока индекс строится, SearchIndexer пишет изменения и в него
+        assertEquals(started.getIndex(), searchReindexer.buildingIndex(SearchEntityType.MOVIE).orElseThrow());
+        searchReindexer.cancel();
+        release.countDown();
+        SearchReindexStatusDto status = awaitFinished();
+
+        assertTrue(status.isCancelled());
+        assertFalse(status.isCompleted());
+        verify(indexOps).delete();
+        verify(indicesClient, never()).updateAliases(any(Function.class));
+        assertTrue(searchReindexer.buildingIndex(SearchEntityType.MOVIE).isEmpty());
+    }
+
+    private List<String> slices(long afterId, long toId) {
+        List<long[]> slices = ReflectionTestUtils.invokeMethod(searchReindexer, "slices", afterId, toId);
+        return slices.stream()
+                .map(slice -> slice[0] + "-" + slice[1])
+                .toList();
+    }
+
+    private static IndexCoordinates index(String name) {
+        return argThat(coordinates -> coordinates != null && name.equals(coordinates.getIndexName()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Action> aliasActions() throws IOException {
+        ArgumentCaptor<Function<UpdateAliasesRequest.Builder, ObjectBuilder<UpdateAliasesRequest>>> request =
+                ArgumentCaptor.forClass(Function.class);
+        verify(indicesClient).updateAliases(request.capture());
+        return request.getValue().apply(new UpdateAliasesRequest.Builder()).build().actions();
+    }
+
+    private SearchReindexStatusDto awaitFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        SearchReindexStatusDto status = searchReindexer.getStatus();
+        while (status.isRunning() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            status = searchReindexer.getStatus();
+        }
+        assertFalse(status.isRunning(), "reindex did not finish");
+        return status;
+    }
+}
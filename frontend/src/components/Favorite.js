@@ -103,7 +103,7 @@ const Favorite = () => {
               <div className="movie-poster-container">
                 <img
                   className="movie-poster"
-                  src={`http://localhost:8081/api/movies/${movie.id}/poster`}
+                  src={`http://localhost:8081/api/movies/${movie.id}/poster?size=w185`}
                   alt={`Постер к фильму ${movie.title}`}
                   onError={(e) => {
                     e.target.onerror = null;
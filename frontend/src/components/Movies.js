@@ -228,7 +228,7 @@ const Movies = () => {
               <div className="movie-poster-container">
                 <img
                   className="movie-poster"
-                  src={`http://localhost:8081/api/movies/${movie.id}/poster`}
+                  src={`http://localhost:8081/api/movies/${movie.id}/poster?size=w185`}
                   alt={`Постер к фильму ${movie.title}`}
                   onError={(e) => {
                     e.target.onerror = null;
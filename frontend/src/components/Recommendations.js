@@ -175,7 +175,7 @@ const Recommendations = () => {
                   {movie ? (
                     <img
                       className="movie-poster"
-                      src={`http://localhost:8081/api/movies/${movie.id}/poster`}
+                      src={`http://localhost:8081/api/movies/${movie.id}/poster?size=w185`}
                       alt={`Постер ${movie.title}`}
                       onError={(e) => {
                         e.target.onerror = null;